@@ -0,0 +1,56 @@
+package xyz.deverse.importer;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+
+/**
+ * Annotate a field so that it is decoded from the bytes of a fixed-length binary record between the given offsets
+ * during the import
+ */
+@Target({ FIELD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BinaryOffset {
+
+    int start();
+
+    int end();
+
+    Encoding encoding() default Encoding.TEXT;
+
+    /**
+     * @return The charset of a {@link Encoding#TEXT} field, EBCDIC by default
+     */
+    String charset() default "IBM037";
+
+    /**
+     * @return The implied decimal places of a number field bound to a BigDecimal
+     */
+    int scale() default 0;
+
+    /**
+     * @return True to trim the spaces around the value of a {@link Encoding#TEXT} field
+     */
+    boolean trim() default false;
+
+    enum Encoding {
+
+        /**
+         * Characters in the charset of the field, bound to a String
+         */
+        TEXT,
+
+        /**
+         * COMP-3 packed decimal: two digits per byte, the last half-byte holding the sign. Bound to an int, a long or
+         * a BigDecimal
+         */
+        PACKED_DECIMAL,
+
+        /**
+         * COMP binary integer: big-endian two's complement of 1 to 8 bytes. Bound to an int, a long or a BigDecimal
+         */
+        BINARY
+    }
+}
@@ -12,7 +12,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 @Getter
-public abstract class FileReader<T, S extends ImportLine> {
+public abstract class FileReader<T, S extends ImportLine> implements AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FileReader.class);
 
@@ -63,4 +63,21 @@ public abstract class FileReader<T, S extends ImportLine> {
     }
 
     public abstract ReadFilter createFilter();
+
+    /**
+     * Read the groups, the version and the first rows of each group, without reading the rest of the file
+     *
+     * @param rowCount The number of rows to read per group
+     * @throws UnsupportedOperationException If the reader does not override it, as the readers of the library do
+     */
+    public Preview preview(int rowCount) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support previews");
+    }
+
+    /**
+     * Release the resources shared between {@link #createFilter()} and {@link #read(ReadFilter)}
+     */
+    @Override
+    public void close() {
+    }
 }
@@ -17,4 +17,9 @@ public @interface FixedOffset {
 
     int end();
 
+    /**
+     * @return True to trim the spaces around the value of a String field
+     */
+    boolean trim() default false;
+
 }
@@ -28,6 +28,14 @@ public interface ImportLine {
 
 	int getCount();
 
+	/**
+	 * @return The share of the file read up to this line, between 0 and 1, or 0 if the count is not known. The count
+	 * may be estimated, so the progress is approximate
+	 */
+	default double getProgress() {
+		return getCount() > 0 ? Math.min(1.0, (getIndex() + 1) / (double) getCount()) : 0;
+	}
+
 	Level getSeverity();
 
 	String getMessage();
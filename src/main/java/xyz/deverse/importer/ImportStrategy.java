@@ -49,6 +49,12 @@ public abstract class ImportStrategy<T, S extends ImportLine> {
 	@Getter
 	protected boolean aborted;
 
+	/**
+	 * The time the last {@link #parse()} started at, in milliseconds, to be reported as the
+	 * {@link ImporterProcessStatus#getStartTimestamp() start timestamp} of the import
+	 */
+	protected Long startTimestamp;
+
 	@Setter
 	protected UnaryOperator<ReadFilter> filterModifier;
 
@@ -79,6 +85,7 @@ public abstract class ImportStrategy<T, S extends ImportLine> {
 	}
 
 	public void parse() {
+		startTimestamp = System.currentTimeMillis();
 		lineProcessors.add(Math.max(0, lineProcessors.size() - 1), line -> {
 			if (!hasNext() && !line.getSeverity().equals(Level.ERROR)) {
 				postProcessors.forEach(pp -> pp.postProcess(getResults()));
@@ -88,7 +95,13 @@ public abstract class ImportStrategy<T, S extends ImportLine> {
 		});
 
 		// Consume the stream as side effect
-		read().count();
+		try {
+			read().count();
+		} finally {
+			if (fileReader != null) {
+				fileReader.close();
+			}
+		}
 	}
 
 	Stream<ImportLine> read() {
@@ -109,5 +122,6 @@ public abstract class ImportStrategy<T, S extends ImportLine> {
 		this.getImportedLines().clear();
 		this.file = file;
 		this.aborted = false;
+		this.startTimestamp = null;
 	}
 }
@@ -43,6 +43,8 @@ public class ImporterProcessStatus {
 
 	Long timestamp;
 
+	Long startTimestamp;
+
 	int linesSent;
 	
 	String filename;
@@ -64,10 +66,30 @@ public class ImporterProcessStatus {
 		return ImportStatus.STARTED;
 	}
 
+	/**
+	 * @return The progress of the last result, or 0 if there is none
+	 */
+	public double getProgress() {
+		return results.isEmpty() ? 0 : results.get(results.size() - 1).getProgress();
+	}
+
+	/**
+	 * @return The milliseconds left until the import completes, extrapolated from the time elapsed since
+	 * {@link #startTimestamp} up to {@link #timestamp}, or null if it cannot be estimated yet
+	 */
+	public Long getEstimatedTimeLeft() {
+		double progress = getProgress();
+		if (startTimestamp == null || timestamp == null || progress <= 0) {
+			return null;
+		}
+		return Math.round((timestamp - startTimestamp) * (1 - progress) / progress);
+	}
+
 	public ImporterProcessStatus withResultSubList(int from, int to) {
 		return ImporterProcessStatus.builder()
 				.categories(getCategories())
 				.timestamp(getTimestamp())
+				.startTimestamp(getStartTimestamp())
 				.completed(isCompleted())
 				.importTags(getImportTags())
 				.results(results.subList(from, to))
@@ -83,6 +105,7 @@ public class ImporterProcessStatus {
 		return ImporterProcessStatus.builder()
 				.categories(getCategories())
 				.timestamp(getTimestamp())
+				.startTimestamp(getStartTimestamp())
 				.completed(isCompleted())
 				.importTags(getImportTags())
 				.results(results.stream().map(result -> result.withoutNodes()).collect(Collectors.toList()))
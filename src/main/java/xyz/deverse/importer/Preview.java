@@ -0,0 +1,20 @@
+package xyz.deverse.importer;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Overview of a file, read without parsing it entirely
+ */
+@Data
+public class Preview {
+    private Integer version;
+    private String filename;
+    private List<String> groups;
+    /**
+     * Raw values of the first rows, per group
+     */
+    private Map<String, List<List<String>>> rows;
+}
@@ -2,13 +2,80 @@ package xyz.deverse.importer;
 
 import lombok.Data;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 @Data
 public class ReadFilter {
     private Integer version;
     private String filename;
     private List<String> groups;
+    /**
+     * Row numbers to read, per group. All the rows of a group without entry are read
+     */
+    private Map<String, BitSet> rows;
+    /**
+     * Raw cell values, per group and row number. When set, only the rows present in this map are read
+     */
     private Map<String, Map<Integer, Iterable<String>>> rawData;
+
+    /**
+     * Raw data extracted group by group, the first time the group is requested
+     */
+    public static class LazyRawData extends AbstractMap<String, Map<Integer, Iterable<String>>> {
+
+        private final List<String> groups;
+
+        private final Function<String, Map<Integer, Iterable<String>>> loader;
+
+        private final Map<String, Map<Integer, Iterable<String>>> loaded = new HashMap<>();
+
+        public LazyRawData(List<String> groups, Function<String, Map<Integer, Iterable<String>>> loader) {
+            this.groups = new ArrayList<>(groups);
+            this.loader = loader;
+        }
+
+        public boolean isLoaded(String group) {
+            return loaded.containsKey(group);
+        }
+
+        @Override
+        public Map<Integer, Iterable<String>> get(Object group) {
+            if (!loaded.containsKey(group) && groups.contains(group)) {
+                loaded.put((String) group, loader.apply((String) group));
+            }
+            return loaded.get(group);
+        }
+
+        @Override
+        public boolean containsKey(Object group) {
+            return groups.contains(group);
+        }
+
+        @Override
+        public Map<Integer, Iterable<String>> put(String group, Map<Integer, Iterable<String>> rawData) {
+            if (!groups.contains(group)) {
+                groups.add(group);
+            }
+            return loaded.put(group, rawData);
+        }
+
+        @Override
+        public Map<Integer, Iterable<String>> remove(Object group) {
+            groups.remove(group);
+            return loaded.remove(group);
+        }
+
+        @Override
+        public Set<Entry<String, Map<Integer, Iterable<String>>>> entrySet() {
+            groups.forEach(this::get);
+            return loaded.entrySet();
+        }
+    }
 }
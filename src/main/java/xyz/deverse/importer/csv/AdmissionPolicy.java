@@ -0,0 +1,50 @@
+package xyz.deverse.importer.csv;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decides whether and how a workbook is opened, from an estimate of the heap it needs, before it is opened. A policy
+ * shared by the readers of concurrent imports can hold them within a global memory budget
+ */
+public interface AdmissionPolicy {
+
+	/**
+	 * Admit a workbook, possibly waiting for other imports to release memory or choosing another read mode
+	 *
+	 * @param readMode The read mode requested by the reader
+	 * @return The admission, released once the workbook is closed
+	 * @throws RejectedExecutionException If the workbook is not to be opened
+	 */
+	Admission admit(WorkbookEstimate estimate, CsvFileReader.ReadMode readMode);
+
+	/**
+	 * The read mode a workbook is opened with, and the release of the resources reserved for it
+	 */
+	final class Admission {
+
+		private final CsvFileReader.ReadMode readMode;
+
+		private final Runnable release;
+
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		/**
+		 * @param release Called once when the workbook is closed
+		 */
+		public Admission(CsvFileReader.ReadMode readMode, Runnable release) {
+			this.readMode = readMode;
+			this.release = release;
+		}
+
+		public CsvFileReader.ReadMode getReadMode() {
+			return readMode;
+		}
+
+		public void release() {
+			if (released.compareAndSet(false, true)) {
+				release.run();
+			}
+		}
+	}
+}
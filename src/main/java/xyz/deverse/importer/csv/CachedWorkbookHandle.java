@@ -0,0 +1,615 @@
+package xyz.deverse.importer.csv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+/**
+ * Workbook replayed from an entry of a {@link ParsedFileCache}: a directory holding the names of the sheets and a
+ * file per sheet. Sheets missing from the entry are read from the source workbook, opened when first needed, and
+ * written to the entry as their rows are read. A sheet is added to the entry once all its rows have been read, so
+ * that only the sheets an import reads are parsed and written, and only once.
+ * <p>
+ * Sheet files are columnar: rows are written in blocks, and the cells of a block column after column. Each cell holds
+ * its formatted value, as returned by the engine that read it with a default {@link DataFormatter}, and its typed
+ * value. Within a sheet, repeated strings are written once and then referenced by their index. A sheet file is opened
+ * when its rows are iterated, so that an entry evicted while it is being read remains readable.
+ */
+class CachedWorkbookHandle implements WorkbookHandle {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CachedWorkbookHandle.class);
+
+	/**
+	 * Opens the workbook the entry is written from
+	 */
+	interface Source {
+		WorkbookHandle open() throws IOException, OpenXML4JException, SAXException;
+	}
+
+	private static final String SHEETS = "sheets";
+
+	private static final String SHEET_EXTENSION = ".sheet";
+
+	private static final int MAGIC = 0x494d5032;
+
+	private static final int END_OF_SHEET = -1;
+
+	private static final int BLOCK_SIZE = 1024;
+
+	private static final int NEW_STRING = -1;
+
+	/**
+	 * Strings longer than this are not referenced, as they are unlikely to repeat
+	 */
+	private static final int MAX_REFERENCED_LENGTH = 64;
+
+	private static final int MAX_REFERENCED_STRINGS = 1 << 16;
+
+	private static final int VALUE_IS_NUMBER = 1;
+
+	private static final CellType[] CELL_TYPES = CellType.values();
+
+	private final Path entry;
+	private final Source source;
+	private final Runnable sheetWritten;
+	private final List<String> sheetNames = new ArrayList<>();
+	private final List<Integer> rowCounts = new ArrayList<>();
+	private WorkbookHandle sourceWorkbook;
+
+	/**
+	 * @param sheetWritten Called once a sheet is added to the entry
+	 */
+	CachedWorkbookHandle(Path entry, Source source, Runnable sheetWritten) throws IOException, OpenXML4JException, SAXException {
+		this.entry = entry;
+		this.source = source;
+		this.sheetWritten = sheetWritten;
+		if (!readSheets()) {
+			WorkbookHandle workbook = getSource();
+			try {
+				sheetNames.addAll(workbook.getSheetNames());
+				for (int i = 0; i < sheetNames.size(); i++) {
+					rowCounts.add(workbook.estimateRowCount(i));
+				}
+			} catch (RuntimeException e) {
+				close();
+				throw e;
+			}
+			writeSheets();
+		}
+	}
+
+	private boolean readSheets() {
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry.resolve(SHEETS))))) {
+			if (input.readInt() != MAGIC) {
+				throw new IOException("Not a cache entry: " + entry);
+			}
+			int sheetCount = input.readInt();
+			for (int i = 0; i < sheetCount; i++) {
+				sheetNames.add(input.readUTF());
+				rowCounts.add(input.readInt());
+			}
+			return true;
+		} catch (NoSuchFileException e) {
+			return false;
+		} catch (IOException e) {
+			LOGGER.warn("Discarding the unreadable cache entry " + entry, e);
+			sheetNames.clear();
+			rowCounts.clear();
+			return false;
+		}
+	}
+
+	/**
+	 * Write the names of the sheets, with their row count estimated by the source workbook
+	 */
+	private void writeSheets() {
+		try {
+			Files.createDirectories(entry);
+			Path tempFile = Files.createTempFile(entry, SHEETS, ".tmp");
+			try {
+				try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+					output.writeInt(MAGIC);
+					output.writeInt(sheetNames.size());
+					for (int i = 0; i < sheetNames.size(); i++) {
+						output.writeUTF(sheetNames.get(i));
+						output.writeInt(rowCounts.get(i));
+					}
+				}
+				Files.move(tempFile, entry.resolve(SHEETS), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tempFile);
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Cannot write the sheets of the cache entry " + entry, e);
+		}
+	}
+
+	private synchronized WorkbookHandle getSource() throws IOException, OpenXML4JException, SAXException {
+		if (sourceWorkbook == null) {
+			sourceWorkbook = source.open();
+		}
+		return sourceWorkbook;
+	}
+
+	private WorkbookHandle getSourceUnchecked() {
+		try {
+			return getSource();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot open the source of " + entry, e);
+		} catch (OpenXML4JException | SAXException e) {
+			throw new IllegalStateException("Cannot open the source of " + entry, e);
+		}
+	}
+
+	private Path sheetFile(int sheetIndex) {
+		return entry.resolve(sheetIndex + SHEET_EXTENSION);
+	}
+
+	@Override
+	public List<String> getSheetNames() {
+		return sheetNames;
+	}
+
+	/**
+	 * @return The rows of the sheet file, or the rows of the source workbook, written to the entry as they are read
+	 */
+	@Override
+	public Iterator<SheetRow> rowIterator(int sheetIndex) {
+		Path sheetFile = sheetFile(sheetIndex);
+		try {
+			return new SheetRowIterator(sheetIndex, new DataInputStream(new BufferedInputStream(Files.newInputStream(sheetFile), 1 << 16)));
+		} catch (NoSuchFileException e) {
+			// Not written yet, or evicted
+		} catch (IOException e) {
+			LOGGER.warn("Discarding the unreadable cached sheet " + sheetFile, e);
+		}
+		return new WritingRowIterator(sheetIndex, getSourceUnchecked().rowIterator(sheetIndex));
+	}
+
+	/**
+	 * @return The row count estimated by the source workbook, or the number of rows of the sheet file
+	 */
+	@Override
+	public int estimateRowCount(int sheetIndex) {
+		int rowCount = rowCounts.get(sheetIndex);
+		if (rowCount < 0) {
+			try (SeekableByteChannel channel = Files.newByteChannel(sheetFile(sheetIndex))) {
+				ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES);
+				channel.position(channel.size() - Integer.BYTES);
+				while (trailer.hasRemaining() && channel.read(trailer) >= 0) {
+					// Read the whole trailer
+				}
+				trailer.flip();
+				rowCount = trailer.remaining() == Integer.BYTES ? trailer.getInt() : -1;
+			} catch (IOException e) {
+				rowCount = -1;
+			}
+		}
+		return rowCount;
+	}
+
+	/**
+	 * Sheet files are read with their own stream. Sheets missing from the entry are read from the source workbook
+	 */
+	@Override
+	public boolean supportsConcurrentSheets() {
+		for (int i = 0; i < sheetNames.size(); i++) {
+			if (!Files.exists(sheetFile(i))) {
+				return getSourceUnchecked().supportsConcurrentSheets();
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (sourceWorkbook != null) {
+			sourceWorkbook.close();
+			sourceWorkbook = null;
+		}
+	}
+
+	private class SheetRowIterator implements Iterator<SheetRow>, Closeable {
+
+		private final String sheetName;
+		private final int sheetIndex;
+		private final DataInputStream input;
+		private final List<String> strings = new ArrayList<>();
+		private final Deque<SheetRow> block = new ArrayDeque<>();
+		private boolean closed;
+
+		SheetRowIterator(int sheetIndex, DataInputStream input) throws IOException {
+			this.sheetIndex = sheetIndex;
+			this.sheetName = sheetNames.get(sheetIndex);
+			this.input = input;
+			if (input.readInt() != MAGIC) {
+				input.close();
+				throw new IOException("Not a cached sheet: " + sheetName);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (block.isEmpty() && !closed) {
+				try {
+					readBlock();
+				} catch (IOException e) {
+					close();
+					throw new UncheckedIOException("Cannot read sheet " + sheetName, e);
+				}
+			}
+			return !block.isEmpty();
+		}
+
+		@Override
+		public SheetRow next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return block.pollFirst();
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				try {
+					input.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException("Cannot close sheet " + sheetName, e);
+				}
+			}
+		}
+
+		private void readBlock() throws IOException {
+			int rowCount = input.readInt();
+			if (rowCount == END_OF_SHEET) {
+				close();
+				return;
+			}
+			StreamedSheetRow[] rows = new StreamedSheetRow[rowCount];
+			for (int i = 0; i < rowCount; i++) {
+				rows[i] = new StreamedSheetRow(sheetName, sheetIndex, input.readInt());
+			}
+			int columnCount = input.readInt();
+			for (int i = 0; i < columnCount; i++) {
+				int columnIndex = input.readUnsignedShort();
+				int cellCount = input.readInt();
+				for (int j = 0; j < cellCount; j++) {
+					rows[input.readUnsignedShort()].addCell(readCell(columnIndex));
+				}
+			}
+			block.addAll(Arrays.asList(rows));
+		}
+
+		private CachedSheetCell readCell(int columnIndex) throws IOException {
+			CellType cellType = CELL_TYPES[input.readByte()];
+			CellType resultType = CELL_TYPES[input.readByte()];
+			Object value = input.readByte() == VALUE_IS_NUMBER ? (Object) input.readDouble() : readString();
+			double number = resultType == CellType.NUMERIC ? input.readDouble() : Double.NaN;
+			boolean bool = resultType == CellType.BOOLEAN && input.readBoolean();
+			return new CachedSheetCell(columnIndex, cellType, resultType, value, number, bool);
+		}
+
+		private String readString() throws IOException {
+			int reference = input.readInt();
+			if (reference != NEW_STRING) {
+				return strings.get(reference);
+			}
+			byte[] bytes = new byte[input.readInt()];
+			input.readFully(bytes);
+			String value = new String(bytes, StandardCharsets.UTF_8);
+			if (value.length() <= MAX_REFERENCED_LENGTH && strings.size() < MAX_REFERENCED_STRINGS) {
+				strings.add(value);
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * Rows of the source workbook, written to a temporary file of the entry as they are read. The file becomes the
+	 * sheet file once the last row has been read, and is deleted if the rows are closed before. A sheet that cannot be
+	 * written is still read
+	 */
+	private class WritingRowIterator implements Iterator<SheetRow>, Closeable {
+
+		private final int sheetIndex;
+		private final Iterator<SheetRow> rows;
+		private Path tempFile;
+		private SheetWriter writer;
+
+		WritingRowIterator(int sheetIndex, Iterator<SheetRow> rows) {
+			this.sheetIndex = sheetIndex;
+			this.rows = rows;
+			try {
+				Files.createDirectories(entry);
+				tempFile = Files.createTempFile(entry, sheetIndex + "-", ".tmp");
+				writer = new SheetWriter(new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16)));
+			} catch (IOException e) {
+				LOGGER.warn("Cannot cache sheet " + sheetIndex + " in " + entry, e);
+				discard();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			boolean hasNext = rows.hasNext();
+			if (!hasNext && writer != null) {
+				try {
+					writer.finish();
+					writer = null;
+					Files.move(tempFile, sheetFile(sheetIndex), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					tempFile = null;
+					sheetWritten.run();
+				} catch (IOException e) {
+					LOGGER.warn("Cannot cache sheet " + sheetIndex + " in " + entry, e);
+					discard();
+				}
+			}
+			return hasNext;
+		}
+
+		@Override
+		public SheetRow next() {
+			SheetRow row = rows.next();
+			if (writer != null) {
+				try {
+					writer.write(row);
+				} catch (IOException e) {
+					LOGGER.warn("Cannot cache sheet " + sheetIndex + " in " + entry, e);
+					discard();
+				}
+			}
+			return row;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				discard();
+			} finally {
+				if (rows instanceof Closeable) {
+					((Closeable) rows).close();
+				}
+			}
+		}
+
+		private void discard() {
+			try {
+				if (writer != null) {
+					writer.close();
+				}
+			} catch (IOException e) {
+				LOGGER.debug("Cannot close " + tempFile, e);
+			} finally {
+				writer = null;
+			}
+			try {
+				if (tempFile != null) {
+					Files.deleteIfExists(tempFile);
+				}
+			} catch (IOException e) {
+				LOGGER.warn("Cannot delete " + tempFile, e);
+			} finally {
+				tempFile = null;
+			}
+		}
+	}
+
+	/**
+	 * Writes the rows of a sheet in blocks of {@link #BLOCK_SIZE} rows: their row numbers, then the cells of each
+	 * column in turn, with the position of their row in the block
+	 */
+	private static class SheetWriter implements Closeable {
+
+		private final DataOutputStream output;
+		private final DataFormatter dataFormatter = new DataFormatter();
+		private final Map<String, Integer> strings = new HashMap<>();
+		private final List<Integer> rowNums = new ArrayList<>();
+		private final Map<Integer, List<SheetCell>> columns = new TreeMap<>();
+		private final Map<Integer, List<Integer>> positions = new HashMap<>();
+		private int rowCount;
+
+		SheetWriter(DataOutputStream output) throws IOException {
+			this.output = output;
+			output.writeInt(MAGIC);
+		}
+
+		void write(SheetRow row) throws IOException {
+			int position = rowNums.size();
+			rowNums.add(row.getRowNum());
+			for (Iterator<SheetCell> cells = row.cellIterator(); cells.hasNext();) {
+				SheetCell cell = cells.next();
+				columns.computeIfAbsent(cell.getColumnIndex(), columnIndex -> new ArrayList<>()).add(cell);
+				positions.computeIfAbsent(cell.getColumnIndex(), columnIndex -> new ArrayList<>()).add(position);
+			}
+			rowCount++;
+			if (rowNums.size() == BLOCK_SIZE) {
+				writeBlock();
+			}
+		}
+
+		/**
+		 * Write the last block and the number of rows of the sheet, and close the file
+		 */
+		void finish() throws IOException {
+			writeBlock();
+			output.writeInt(END_OF_SHEET);
+			output.writeInt(rowCount);
+			output.close();
+		}
+
+		@Override
+		public void close() throws IOException {
+			output.close();
+		}
+
+		private void writeBlock() throws IOException {
+			if (rowNums.isEmpty()) {
+				return;
+			}
+			output.writeInt(rowNums.size());
+			for (int rowNum : rowNums) {
+				output.writeInt(rowNum);
+			}
+			output.writeInt(columns.size());
+			for (Map.Entry<Integer, List<SheetCell>> column : columns.entrySet()) {
+				List<Integer> cellPositions = positions.get(column.getKey());
+				output.writeShort(column.getKey());
+				output.writeInt(column.getValue().size());
+				for (int i = 0; i < column.getValue().size(); i++) {
+					output.writeShort(cellPositions.get(i));
+					writeCell(column.getValue().get(i));
+				}
+			}
+			rowNums.clear();
+			columns.clear();
+			positions.clear();
+		}
+
+		private void writeCell(SheetCell cell) throws IOException {
+			Object value = cell.getCellValue(dataFormatter);
+			CellType resultType = cell.getResultType();
+			output.writeByte(cell.getCellType().ordinal());
+			output.writeByte(resultType.ordinal());
+			if (value instanceof Number) {
+				output.writeByte(VALUE_IS_NUMBER);
+				output.writeDouble(((Number) value).doubleValue());
+			} else {
+				output.writeByte(0);
+				writeString(String.valueOf(value));
+			}
+			if (resultType == CellType.NUMERIC) {
+				output.writeDouble(cell.getNumericCellValue());
+			} else if (resultType == CellType.BOOLEAN) {
+				output.writeBoolean(cell.getBooleanCellValue());
+			}
+		}
+
+		private void writeString(String value) throws IOException {
+			Integer reference = strings.get(value);
+			if (reference != null) {
+				output.writeInt(reference);
+				return;
+			}
+			if (value.length() <= MAX_REFERENCED_LENGTH && strings.size() < MAX_REFERENCED_STRINGS) {
+				strings.put(value, strings.size());
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			output.writeInt(NEW_STRING);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+	}
+
+	private static class CachedSheetCell implements SheetCell {
+
+		private final int columnIndex;
+		private final CellType cellType;
+		private final CellType resultType;
+		private final Object value;
+		private final double number;
+		private final boolean bool;
+
+		CachedSheetCell(int columnIndex, CellType cellType, CellType resultType, Object value, double number, boolean bool) {
+			this.columnIndex = columnIndex;
+			this.cellType = cellType;
+			this.resultType = resultType;
+			this.value = value;
+			this.number = number;
+			this.bool = bool;
+		}
+
+		@Override
+		public int getColumnIndex() {
+			return columnIndex;
+		}
+
+		@Override
+		public CellType getCellType() {
+			return cellType;
+		}
+
+		@Override
+		public String getStringCellValue() {
+			if (resultType == CellType.STRING || resultType == CellType.BLANK) {
+				return String.valueOf(value);
+			}
+			throw new IllegalStateException("Cannot get a STRING value from a " + resultType + " cell");
+		}
+
+		@Override
+		public CellType getResultType() {
+			return resultType;
+		}
+
+		@Override
+		public double getNumericCellValue() {
+			checkResultType(CellType.NUMERIC);
+			return number;
+		}
+
+		@Override
+		public boolean getBooleanCellValue() {
+			checkResultType(CellType.BOOLEAN);
+			return bool;
+		}
+
+		@Override
+		public Date getDateCellValue() {
+			checkResultType(CellType.NUMERIC);
+			return DateUtil.getJavaDate(number);
+		}
+
+		@Override
+		public LocalDateTime getLocalDateTimeCellValue() {
+			checkResultType(CellType.NUMERIC);
+			return DateUtil.getLocalDateTime(number);
+		}
+
+		private void checkResultType(CellType expectedType) {
+			if (resultType != expectedType) {
+				throw new IllegalStateException("Cannot get a " + expectedType + " value from a " + resultType + " cell");
+			}
+		}
+
+		/**
+		 * @return The value formatted when the cell was cached, whatever the given formatter
+		 */
+		@Override
+		public Object getCellValue(DataFormatter dataFormatter) {
+			return value;
+		}
+	}
+}
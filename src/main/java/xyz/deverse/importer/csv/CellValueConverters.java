@@ -0,0 +1,163 @@
+package xyz.deverse.importer.csv;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.convert.converter.GenericConverter;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.core.convert.support.GenericConversionService;
+import org.springframework.util.NumberUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Converters of cell values to the type of the field they are bound to, resolved once per field. Numbers, booleans,
+ * local dates and enums are converted directly, with the same rules as the default Spring converters, and any other
+ * type is delegated to the conversion service. A conversion service supplied by the user may hold its own converters:
+ * values are delegated to it when it resolves a converter for their type other than the default one
+ */
+final class CellValueConverters {
+
+	private static final List<Class<?>> NUMBER_TYPES = Arrays.asList(Byte.class, Short.class, Integer.class, Long.class,
+			BigInteger.class, Float.class, Double.class, BigDecimal.class);
+
+	private static final Set<String> TRUE_VALUES = new HashSet<>(Arrays.asList("true", "on", "yes", "1"));
+
+	private static final Set<String> FALSE_VALUES = new HashSet<>(Arrays.asList("false", "off", "no", "0"));
+
+	/**
+	 * The conversion service of the readers not given one, never exposed, so that its converters are known
+	 */
+	static final ConversionService DEFAULT_CONVERSION_SERVICE = new DefaultConversionService();
+
+	private static final Method GET_CONVERTER = ReflectionUtils.findMethod(GenericConversionService.class, "getConverter", TypeDescriptor.class, TypeDescriptor.class);
+
+	static {
+		if (GET_CONVERTER != null) {
+			ReflectionUtils.makeAccessible(GET_CONVERTER);
+		}
+	}
+
+	private CellValueConverters() {
+	}
+
+	/**
+	 * @return The converter of the values bound to a field of the given type. With a conversion service other than the
+	 * default one, the direct conversion is used for the types of value the service converts as the default one does,
+	 * or cannot convert
+	 */
+	static Converter<Object, Object> of(Class<?> type, ConversionService conversionService) {
+		Converter<Object, Object> converter = directConverter(type, conversionService);
+		if (converter == null || conversionService == DEFAULT_CONVERSION_SERVICE) {
+			return converter != null ? converter : value -> conversionService.convert(value, type);
+		}
+		Map<Class<?>, Boolean> delegated = new ConcurrentHashMap<>();
+		return value -> value != null && delegated.computeIfAbsent(value.getClass(), valueType -> hasOwnConverter(conversionService, valueType, type))
+				? conversionService.convert(value, type)
+				: converter.convert(value);
+	}
+
+	/**
+	 * @return True if the service resolves a converter for the pair of types that the default service does not
+	 */
+	private static boolean hasOwnConverter(ConversionService conversionService, Class<?> sourceType, Class<?> targetType) {
+		if (!conversionService.canConvert(sourceType, targetType)) {
+			return false;
+		} else if (!(conversionService instanceof GenericConversionService) || GET_CONVERTER == null) {
+			return true;
+		}
+		TypeDescriptor source = TypeDescriptor.valueOf(sourceType);
+		TypeDescriptor target = TypeDescriptor.valueOf(targetType);
+		GenericConverter converter = (GenericConverter) ReflectionUtils.invokeMethod(GET_CONVERTER, conversionService, source, target);
+		GenericConverter defaultConverter = (GenericConverter) ReflectionUtils.invokeMethod(GET_CONVERTER, DEFAULT_CONVERSION_SERVICE, source, target);
+		return converter == null || defaultConverter == null || !describe(converter).equals(describe(defaultConverter));
+	}
+
+	/**
+	 * @return The types and the class of the converter adapted by the service, without its identity
+	 */
+	private static String describe(GenericConverter converter) {
+		return converter.toString().replaceAll("@[0-9a-f]+", "");
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Converter<Object, Object> directConverter(Class<?> type, ConversionService conversionService) {
+		Class<?> wrapperType = ClassUtils.primitiveToWrapper(type);
+		if (wrapperType == String.class) {
+			return value -> value instanceof String ? value : conversionService.convert(value, String.class);
+		} else if (NUMBER_TYPES.contains(wrapperType)) {
+			Class<Number> numberType = (Class<Number>) wrapperType;
+			return value -> {
+				if (value instanceof Number) {
+					return NumberUtils.convertNumberToTargetClass((Number) value, numberType);
+				} else if (value instanceof String) {
+					return ((String) value).isEmpty() ? null : NumberUtils.parseNumber((String) value, numberType);
+				}
+				return conversionService.convert(value, numberType);
+			};
+		} else if (wrapperType == Boolean.class) {
+			return value -> {
+				if (value instanceof Boolean) {
+					return value;
+				} else if (value instanceof String) {
+					return toBoolean((String) value);
+				}
+				return conversionService.convert(value, Boolean.class);
+			};
+		} else if (type == LocalDate.class) {
+			return value -> {
+				if (value instanceof LocalDate) {
+					return value;
+				} else if (value instanceof LocalDateTime) {
+					return ((LocalDateTime) value).toLocalDate();
+				}
+				return conversionService.convert(value, LocalDate.class);
+			};
+		} else if (type.isEnum()) {
+			Map<String, Object> constants = new HashMap<>();
+			for (Enum<?> constant : ((Class<? extends Enum>) type).getEnumConstants()) {
+				constants.put(constant.name(), constant);
+			}
+			return value -> value instanceof String ? toEnum((String) value, type, constants) : conversionService.convert(value, type);
+		}
+		return null;
+	}
+
+	private static Boolean toBoolean(String source) {
+		String value = source.trim();
+		if (value.isEmpty()) {
+			return null;
+		}
+		value = value.toLowerCase();
+		if (TRUE_VALUES.contains(value)) {
+			return Boolean.TRUE;
+		} else if (FALSE_VALUES.contains(value)) {
+			return Boolean.FALSE;
+		}
+		throw new IllegalArgumentException("Invalid boolean value '" + source + "'");
+	}
+
+	private static Object toEnum(String source, Class<?> type, Map<String, Object> constants) {
+		if (source.isEmpty()) {
+			return null;
+		}
+		Object constant = constants.get(source.trim());
+		if (constant == null) {
+			throw new IllegalArgumentException("No enum constant " + type.getCanonicalName() + "." + source.trim());
+		}
+		return constant;
+	}
+}
@@ -15,7 +15,23 @@ import static java.lang.annotation.ElementType.FIELD;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface CsvColumn {
 
+	/**
+	 * @return The position of the column, starting from 0
+	 */
 	int value();
 
+	/**
+	 * @return The header of the column. When set and the reader binds columns by header, the field is bound to the
+	 * column with this header on the header row of each sheet, and falls back to the {@link #value() position} if
+	 * there is none
+	 */
+	String header() default "";
+
+	/**
+	 * @return True to share one instance between the equal String values of the column, as for categorical columns
+	 * whose few distinct values repeat on most rows. The distinct values kept are bounded by the reader
+	 */
+	boolean interned() default false;
+
 	ActionType actionType() default ActionType.PERSIST;
 }
@@ -1,63 +1,88 @@
 package xyz.deverse.importer.csv;
 
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.BiFunction;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
-import com.sun.org.apache.xpath.internal.compiler.FunctionTable;
 import xyz.deverse.importer.*;
-import xyz.deverse.importer.misc.DefaultValue;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
-import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.DataFormatter;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.event.Level;
 import org.springframework.core.convert.ConversionService;
-import org.springframework.core.convert.support.DefaultConversionService;
-import org.springframework.util.ReflectionUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.SAXException;
 
 import lombok.Getter;
 import lombok.Setter;
 import xyz.deverse.importer.csv.CsvFileReader.CsvLine;
 
-public abstract class CsvFileReader<T, S extends CsvLine<T>> extends FileReader<Row, S> {
+public abstract class CsvFileReader<T, S extends CsvLine<T>> extends FileReader<SheetRow, S> {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(CsvFileReader.class);
-	private Integer version;
 
 	public static interface CsvImportMapper<T, S extends CsvLine<T>> extends ImportMapper<T, S> { }
 
+	/**
+	 * Engine used to read the workbook
+	 */
+	public enum ReadMode {
+		/**
+		 * The whole workbook is loaded in memory through the POI usermodel
+		 */
+		DOM,
+		/**
+		 * Sheets of XLSX and XLS workbooks are read row by row through the POI event model, so that memory use does
+		 * not grow with the size of the file. Other formats are read as in {@link #DOM} mode
+		 */
+		STREAMING,
+		/**
+		 * The file is a delimited text file (RFC 4180), read as a single sheet named after the file. See the
+		 * {@link #setDelimiter(char) delimiter} and the {@link #setCharset(Charset) charset}
+		 */
+		DELIMITED_TEXT
+	}
+
 	@Getter
 	@Setter
 	public static class CsvLine<T> implements ImportLine {
@@ -105,6 +130,9 @@ public abstract class CsvFileReader<T, S extends CsvLine<T>> extends FileReader<
 	@Setter
 	Function<Integer, String> emptyLineMessageFunction;
 
+	@Setter
+	Function<Integer, String> blankLineMessageFunction;
+
 	@Setter
 	Function<Integer, String> ignoredLineMessageFunction;
 
@@ -118,8 +146,94 @@ public abstract class CsvFileReader<T, S extends CsvLine<T>> extends FileReader<
 	@Setter
 	Function<T, String> lineMessageFunction;
 
+	@Setter
+	ReadMode readMode = ReadMode.DOM;
+
+	/**
+	 * When true, cells bound to numeric, boolean or date fields are read as such instead of being formatted and
+	 * parsed back. Such cells are never empty
+	 */
+	@Setter
+	boolean typedCellValues;
+
+	/**
+	 * When true, fields with a {@link CsvColumn#header()} are bound to the column with that header on the header row
+	 * of each sheet
+	 */
+	@Setter
+	boolean headerBinding;
+
+	/**
+	 * When positive, the shared strings table of XLSX workbooks read in {@link ReadMode#STREAMING} mode is stored in
+	 * temporary files, keeping only this number of most recently used strings in memory
+	 */
+	@Setter
+	int sharedStringsCacheSize;
+
+	/**
+	 * Field delimiter of a delimited text file
+	 */
+	@Setter
+	char delimiter = ',';
+
+	/**
+	 * Charset of a delimited text file
+	 */
+	@Setter
+	Charset charset = StandardCharsets.UTF_8;
+
+	/**
+	 * When greater than 1, the number of sheets parsed at the same time, each with its own cell formatter and mapper.
+	 * Lines are still delivered in sheet order. Workbooks whose engine cannot read sheets concurrently are read one
+	 * sheet after the other
+	 */
+	@Setter
+	int sheetParallelism = 1;
+
+	/**
+	 * When greater than 1, the number of chunks of rows bound at the same time when sheets are read one after the
+	 * other, each chunk with its own cell formatter and mapper. Rows are still read, and lines delivered, in order
+	 */
+	@Setter
+	int rowParallelism = 1;
+
+	/**
+	 * When set, admits the workbook opened for an import from an estimate of the heap it needs, and may choose the
+	 * read mode it is opened with
+	 */
+	@Setter
+	AdmissionPolicy admissionPolicy;
+
+	/**
+	 * When set, workbooks read in {@link ReadMode#DOM} or {@link ReadMode#STREAMING} mode are parsed once per content
+	 * and engine: the rows of the sheets read are written to the cache as they are read, and replayed from it when the
+	 * same content is read again
+	 */
+	@Setter
+	ParsedFileCache parsedFileCache;
+
+	/**
+	 * The number of distinct values kept for each {@link CsvColumn#interned() interned} column of the import
+	 */
+	@Setter
+	int dictionarySize = 1024;
+
 	Function<Integer,CsvFileReader.CsvImportMapper<T, S>> mapper;
 
+	private WorkbookHandle workbook;
+
+	private WorkbookRowIterator rowIterator;
+
+	private ParallelSheetIterator sheetIterator;
+
+	private ParallelRowIterator chunkIterator;
+
+	private CsvLineBinder.Plan positionalPlan;
+
+	private final Map<Integer, CsvLineBinder.Plan> sheetPlans = new ConcurrentHashMap<>();
+
+	private final Map<String, ValueDictionary> dictionaries = new ConcurrentHashMap<>();
+
 	@SuppressWarnings("unchecked")
 	public CsvFileReader(MultipartFile file, Class<S> lineType, LinkedList<Consumer<ImportLine>> lineProcessors, Collection<ImportLine> importedLines, Function<Integer,CsvFileReader.CsvImportMapper<T, S>> mapper) {
 		super(file, lineType, lineProcessors, importedLines);
@@ -128,61 +242,99 @@ public abstract class CsvFileReader<T, S extends CsvLine<T>> extends FileReader<
 
 	@Override
 	public ReadFilter createFilter() {
-		try(Workbook workbook = initializeWorkbook()) {
+		try {
+			WorkbookHandle workbook = getWorkbook();
+			List<String> sheetNames = workbook.getSheetNames();
 			ReadFilter filter = new ReadFilter();
-			filter.setGroups(new ArrayList<>());
-			filter.setRawData(new HashMap<>());
-			getSheetNames(workbook).forEach(name -> {
-				filter.setFilename(file.getOriginalFilename());
-				filter.getRawData().put(name, new HashMap<>());
-				workbook.getSheet(name).rowIterator().forEachRemaining(row -> {
-					Stream<String> stream = StreamSupport.stream(
-					Spliterators.spliteratorUnknownSize(
-							row.cellIterator(),
-							Spliterator.ORDERED)
-					, false).map(cell -> extractCellValue(cell).toString());
-					filter.getRawData().get(name).put(row.getRowNum(), stream::iterator);
-				});
-				filter.getGroups().add(name);
-			});
-			String firstCellOnFirstSheet = extractCellValue(workbook.getSheetAt(0).getRow(0).getCell(0)).toString();
-			filter.setVersion(Integer.parseInt(firstCellOnFirstSheet));
+			filter.setFilename(file.getOriginalFilename());
+			filter.setGroups(new ArrayList<>(sheetNames));
+			filter.setRows(new HashMap<>());
+			filter.setRawData(new ReadFilter.LazyRawData(sheetNames, this::extractRawData));
+			filter.setVersion(readVersion(workbook));
 			return filter;
 		} catch (Exception e) {
+			close();
 			throw new UnsupportedOperationException("Cannot create filter ", e);
 		}
 	}
 
+	/**
+	 * Workbooks are read with the {@link ReadMode#STREAMING} engine, whatever the read mode, and bypassing the
+	 * {@link #parsedFileCache}, so that only the previewed rows are parsed
+	 */
+	@Override
+	public Preview preview(int rowCount) {
+		try (WorkbookHandle workbook = openSourceWorkbook(readMode == ReadMode.DOM ? ReadMode.STREAMING : readMode, new AtomicReference<>())) {
+			List<String> sheetNames = workbook.getSheetNames();
+			Preview preview = new Preview();
+			preview.setFilename(file.getOriginalFilename());
+			preview.setGroups(new ArrayList<>(sheetNames));
+			preview.setVersion(readVersion(workbook));
+			preview.setRows(new LinkedHashMap<>());
+			for (int i = 0; i < sheetNames.size(); i++) {
+				List<List<String>> rows = new ArrayList<>();
+				Iterator<SheetRow> rowIterator = workbook.rowIterator(i);
+				try {
+					while (rows.size() < rowCount && rowIterator.hasNext()) {
+						List<String> values = new ArrayList<>();
+						rowIterator.next().cellIterator().forEachRemaining(cell -> values.add(extractCellValue(cell).toString()));
+						rows.add(values);
+					}
+				} finally {
+					if (rowIterator instanceof Closeable) {
+						((Closeable) rowIterator).close();
+					}
+				}
+				preview.getRows().put(sheetNames.get(i), rows);
+			}
+			return preview;
+		} catch (Exception e) {
+			throw new UnsupportedOperationException("Cannot preview ", e);
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public Stream<ImportLine> read(ReadFilter filter) {
 		List<String> sheetNames = new ArrayList<>();
-		try(Workbook workbook = initializeWorkbook()) {
-			sheetNames.addAll(getSheetNames(workbook));
-			Iterator<Row> iterator = StreamSupport //
-					.stream(Spliterators.spliteratorUnknownSize(workbook.sheetIterator(), Spliterator.ORDERED), false)//
-					.flatMap(s -> StreamSupport //
-							.stream(Spliterators.spliteratorUnknownSize(s.rowIterator(), Spliterator.ORDERED), false))
-					.filter(row -> filter.getGroups().contains(row.getSheet().getSheetName()))
-					.filter(row -> filter.getRawData().get(row.getSheet().getSheetName()).keySet().contains(row.getRowNum()))
-					.iterator();
-			setIterator(iterator);
-
-			Map<Integer, Integer> processedRowsCountPerSheet = new HashMap<>();
-			for (int i = 0; i <= workbook.getNumberOfSheets(); i++) {
-				int rowCount = i > 0 ? processedRowsCountPerSheet.get(i - 1) : 0;
-				if (i > 0 && i <= workbook.getNumberOfSheets()) {
-					String sheetName = workbook.getSheetAt(i - 1).getSheetName();
-					if (filter.getGroups().contains(sheetName)) {
-						rowCount = rowCount + filter.getRawData().get(sheetName).keySet().size();
-					}
+		try {
+			// The row iterator takes ownership of the workbook and closes it once all rows are read
+			WorkbookHandle workbook = getWorkbook();
+			this.workbook = null;
+			sheetNames.addAll(workbook.getSheetNames());
+			RowSelection selection = selectRows(workbook, filter);
+			int totalRowCount = selection.rowCount;
+
+			Stream<ImportLine> parsedLines;
+			int[] selectedSheets = IntStream.range(0, sheetNames.size()).filter(i -> selection.sheets[i]).toArray();
+			if (sheetParallelism > 1 && selectedSheets.length > 1 && workbook.supportsConcurrentSheets()) {
+				sheetIterator = new ParallelSheetIterator(workbook, selectedSheets, selection::test,
+						(sheetIndex, rows) -> parseRows(rows, filter.getVersion(), () -> {}, totalRowCount, sheetNames), sheetParallelism);
+				parsedLines = StreamSupport.stream(Spliterators.spliteratorUnknownSize(sheetIterator, Spliterator.ORDERED), false);
+			} else {
+				ParseContext context = new ParseContext(dataFormatter, null, this::skip);
+				WorkbookRowIterator rows = new WorkbookRowIterator(workbook, sheetIndex -> selection.sheets[sheetIndex], selection::test);
+				rowIterator = rows;
+				setIterator(rows);
+				if (rowParallelism > 1) {
+					chunkIterator = new ParallelRowIterator(rows, row -> row.getRowNum() == 0,
+							row -> parseRow(row, context, totalRowCount, sheetNames).apply(rows.getRowOffset(row.getSheetIndex())),
+							(chunkRows, sheetEnd) -> {
+								Integer version = context.version;
+								int rowOffset = rows.getRowOffset(chunkRows.get(0).getSheetIndex());
+								return () -> parseRows(chunkRows.iterator(), version, sheetEnd, totalRowCount, sheetNames).stream()
+										.map(line -> line.apply(rowOffset))
+										.collect(Collectors.toList());
+							}, rowParallelism);
+					parsedLines = StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunkIterator, Spliterator.ORDERED), false);
+				} else {
+					parsedLines = StreamSupport //
+							.stream(Spliterators.spliteratorUnknownSize(getIterator(), Spliterator.ORDERED), false)
+							.map(row -> parseRow(row, context, totalRowCount, sheetNames).apply(rows.getRowOffset(row.getSheetIndex())));
 				}
-				processedRowsCountPerSheet.put(i, rowCount);
 			}
 
-			return StreamSupport //
-					.stream(Spliterators.spliteratorUnknownSize(getIterator(), Spliterator.ORDERED), false)
-					.map(row -> parseRow(row, processedRowsCountPerSheet)) //
+			return parsedLines //
 					.map(line -> {
 						try {
 							this.onParseLine(line);
@@ -217,55 +369,351 @@ public abstract class CsvFileReader<T, S extends CsvLine<T>> extends FileReader<
 		}
 	}
 
-	private List<String>  getSheetNames(Workbook workbook) {
-		List<String> sheetNames = new ArrayList<>();
-		for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
-			sheetNames.add(workbook.getSheetName(i));
+	/**
+	 * Release the workbook opened by {@link #createFilter()} if it was not read, and stop any read in progress
+	 */
+	@Override
+	public void close() {
+		if (rowIterator != null) {
+			rowIterator.close();
+		}
+		if (sheetIterator != null) {
+			sheetIterator.close();
+		}
+		if (chunkIterator != null) {
+			chunkIterator.close();
+		}
+		if (workbook != null) {
+			try {
+				workbook.close();
+			} catch (IOException e) {
+				LOGGER.warn("Cannot close workbook", e);
+			}
+			workbook = null;
 		}
-		return sheetNames;
 	}
 
-	public void setConversionService(ConversionService conversionService) {
-		this.conversionService = conversionService;
+	@Override
+	public boolean hasNext() {
+		if (sheetIterator != null) {
+			return sheetIterator.hasNext();
+		} else if (chunkIterator != null) {
+			return chunkIterator.hasNext();
+		}
+		return super.hasNext();
 	}
 
-	public void skip(String currentGroupName) {
-		while (getIterator().hasNext()) {
-			Row row = getIterator().next();
-			if (!currentGroupName.equals(row.getSheet().getSheetName())) {
-				return;
+	/**
+	 * Stop the sheets or the chunks parsed in parallel, or read the remaining rows otherwise
+	 */
+	@Override
+	public void abort() {
+		if (sheetIterator != null) {
+			sheetIterator.close();
+		} else if (chunkIterator != null) {
+			chunkIterator.close();
+		} else {
+			super.abort();
+		}
+	}
+
+	/**
+	 * State of the rows being parsed: the cell formatter, and the version and mapper read on the header rows. Sheets
+	 * parsed in parallel each have their own
+	 */
+	private class ParseContext {
+
+		private final DataFormatter dataFormatter;
+
+		private final Consumer<String> sheetSkipper;
+
+		private final Map<Integer, CsvImportMapper<T, S>> mappers = new HashMap<>();
+
+		private Integer version;
+
+		private Integer mapperVersion;
+
+		private CsvImportMapper<T, S> versionMapper;
+
+		/**
+		 * @param version The version until one is read on a header row
+		 * @param sheetSkipper Discards the remaining rows of the given sheet
+		 */
+		private ParseContext(DataFormatter dataFormatter, Integer version, Consumer<String> sheetSkipper) {
+			this.dataFormatter = dataFormatter;
+			this.version = version;
+			this.sheetSkipper = sheetSkipper;
+		}
+
+		/**
+		 * @return The mapper of the current version, created once per version
+		 */
+		private CsvImportMapper<T, S> getMapper() {
+			if (versionMapper == null || !Objects.equals(mapperVersion, version)) {
+				mapperVersion = version;
+				versionMapper = mappers.computeIfAbsent(version, mapper::apply);
+			}
+			return versionMapper;
+		}
+	}
+
+	/**
+	 * Parse rows of a sheet on a worker thread, up to the first empty row
+	 *
+	 * @param version The version of the file, unless the rows include the header row of the sheet
+	 * @param sheetEnd Called when an empty row ends the sheet
+	 */
+	private List<IntFunction<ImportLine>> parseRows(Iterator<SheetRow> rows, Integer version, Runnable sheetEnd, int totalRowCount, List<String> sheetNames) {
+		AtomicBoolean sheetEnded = new AtomicBoolean();
+		ParseContext context = new ParseContext(new DataFormatter(), version, sheetName -> {
+			sheetEnded.set(true);
+			sheetEnd.run();
+		});
+		List<IntFunction<ImportLine>> lines = new ArrayList<>();
+		while (!sheetEnded.get() && rows.hasNext()) {
+			lines.add(parseRow(rows.next(), context, totalRowCount, sheetNames));
+		}
+		return lines;
+	}
+
+	/**
+	 * Workbook whose admission is released when it is closed
+	 */
+	private static class AdmittedWorkbookHandle implements WorkbookHandle {
+
+		private final WorkbookHandle workbook;
+
+		private final AdmissionPolicy.Admission admission;
+
+		private AdmittedWorkbookHandle(WorkbookHandle workbook, AdmissionPolicy.Admission admission) {
+			this.workbook = workbook;
+			this.admission = admission;
+		}
+
+		@Override
+		public List<String> getSheetNames() {
+			return workbook.getSheetNames();
+		}
+
+		@Override
+		public Iterator<SheetRow> rowIterator(int sheetIndex) {
+			return workbook.rowIterator(sheetIndex);
+		}
+
+		@Override
+		public int estimateRowCount(int sheetIndex) {
+			return workbook.estimateRowCount(sheetIndex);
+		}
+
+		@Override
+		public boolean supportsConcurrentSheets() {
+			return workbook.supportsConcurrentSheets();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				workbook.close();
+			} finally {
+				admission.release();
+			}
+		}
+	}
+
+	/**
+	 * Sheets and rows selected by a filter, with the estimated number of selected rows
+	 */
+	private static class RowSelection {
+
+		private final boolean[] sheets;
+
+		/**
+		 * The rows to read in each sheet, null when all the rows are read
+		 */
+		private final BitSet[] rows;
+
+		private int rowCount;
+
+		private RowSelection(int sheetCount) {
+			sheets = new boolean[sheetCount];
+			rows = new BitSet[sheetCount];
+		}
+
+		private boolean test(SheetRow row) {
+			BitSet sheetRows = rows[row.getSheetIndex()];
+			return sheetRows == null || sheetRows.get(row.getRowNum());
+		}
+	}
+
+	/**
+	 * The row count of a sheet without explicit row selection is read from the sheet metadata or estimated, so that
+	 * its rows are not read before the import. Sheets whose engine cannot tell it are not counted
+	 */
+	private RowSelection selectRows(WorkbookHandle workbook, ReadFilter filter) {
+		List<String> sheetNames = workbook.getSheetNames();
+		RowSelection selection = new RowSelection(sheetNames.size());
+		for (int i = 0; i < sheetNames.size(); i++) {
+			String sheetName = sheetNames.get(i);
+			if (!filter.getGroups().contains(sheetName)) {
+				continue;
 			}
+			selection.sheets[i] = true;
+			BitSet rows = filter.getRows() == null ? null : filter.getRows().get(sheetName);
+			Map<String, Map<Integer, Iterable<String>>> rawData = filter.getRawData();
+			boolean hasRawData = rawData instanceof ReadFilter.LazyRawData
+					? ((ReadFilter.LazyRawData) rawData).isLoaded(sheetName)
+					: rawData != null && rawData.containsKey(sheetName);
+			if (hasRawData) {
+				BitSet rawDataRows = new BitSet();
+				rawData.get(sheetName).keySet().forEach(rawDataRows::set);
+				if (rows != null) {
+					rawDataRows.and(rows);
+				}
+				rows = rawDataRows;
+			}
+			selection.rows[i] = rows;
+			selection.rowCount += rows != null ? rows.cardinality() : Math.max(0, workbook.estimateRowCount(i));
 		}
+		return selection;
 	}
 
-	private Object extractCellValue(Cell cell) {
-		Object cellValue;
+	private Integer readVersion(WorkbookHandle workbook) throws IOException {
+		Iterator<SheetRow> rows = workbook.rowIterator(0);
 		try {
-			// do not evaluate formulas
-			cellValue = CellType.FORMULA == cell.getCellType() ? cell.getStringCellValue() : dataFormatter.formatCellValue(cell);
-		} catch (NumberFormatException | IllegalStateException ex) {
-			cellValue = cell.getNumericCellValue();
+			SheetRow firstRow = rows.next();
+			String firstCellOnFirstSheet = extractCellValue(firstRow.cellIterator().next()).toString();
+			return Integer.parseInt(firstCellOnFirstSheet);
+		} finally {
+			if (rows instanceof Closeable) {
+				((Closeable) rows).close();
+			}
 		}
-		return cellValue;
 	}
 
-	private boolean fillHeadersOnFirstRow(Row row) {
-		if (row.getRowNum() > 0 || row.getRowNum() > mapper.apply(version).skipLines()) {
+	private Map<Integer, Iterable<String>> extractRawData(String sheetName) {
+		try {
+			WorkbookHandle workbook = getWorkbook();
+			Map<Integer, Iterable<String>> rawData = new HashMap<>();
+			workbook.rowIterator(workbook.getSheetNames().indexOf(sheetName)).forEachRemaining(row -> {
+				List<String> values = new ArrayList<>();
+				row.cellIterator().forEachRemaining(cell -> values.add(extractCellValue(cell).toString()));
+				rawData.put(row.getRowNum(), values);
+			});
+			return rawData;
+		} catch (IOException | OpenXML4JException | SAXException e) {
+			throw new UnsupportedOperationException("Cannot extract raw data of " + sheetName, e);
+		}
+	}
+
+	public void setConversionService(ConversionService conversionService) {
+		this.conversionService = conversionService;
+		this.positionalPlan = null;
+		this.sheetPlans.clear();
+	}
+
+	/**
+	 * @param positionalPlan The plan binding the cells by position, compiled with the conversion service of the reader,
+	 * or null to compile it on the first row
+	 */
+	void setPositionalPlan(CsvLineBinder.Plan positionalPlan) {
+		this.positionalPlan = positionalPlan;
+	}
+
+	/**
+	 * Discard the remaining rows of the group being read. The following group is read from its first row: earlier
+	 * versions also discarded that row, so the header row of a sheet following an empty row was never read
+	 *
+	 * @param currentGroupName The name of the group being read
+	 */
+	public void skip(String currentGroupName) {
+		rowIterator.skipSheet();
+	}
+
+	private Object extractCellValue(SheetCell cell) {
+		return cell.getCellValue(dataFormatter);
+	}
+
+	/**
+	 * @return The value of the cell read without formatting, or null if the cell type does not match the field type
+	 * @throws IllegalArgumentException If the number of the cell has a fractional part and the field is an integer
+	 */
+	private Object extractTypedCellValue(SheetCell cell, CsvLineBinder.TypedValue typedValue) {
+		CellType resultType = cell.getResultType();
+		switch (typedValue) {
+		case NUMBER:
+			return resultType == CellType.NUMERIC ? cell.getNumericCellValue() : null;
+		case INTEGER:
+			if (resultType != CellType.NUMERIC) {
+				return null;
+			}
+			double value = cell.getNumericCellValue();
+			if (value != Math.rint(value)) {
+				throw new IllegalArgumentException("Cannot bind the number " + value + " to an integer");
+			}
+			return value;
+		case BOOLEAN:
+			return resultType == CellType.BOOLEAN ? cell.getBooleanCellValue() : null;
+		case DATE:
+			return resultType == CellType.NUMERIC ? cell.getDateCellValue() : null;
+		case LOCAL_DATE:
+			return resultType == CellType.NUMERIC ? cell.getLocalDateTimeCellValue().toLocalDate() : null;
+		case LOCAL_DATE_TIME:
+			return resultType == CellType.NUMERIC ? cell.getLocalDateTimeCellValue() : null;
+		default:
+			return null;
+		}
+	}
+
+	private boolean fillHeadersOnFirstRow(SheetRow row, ParseContext context) {
+		if (row.getRowNum() > 0 || row.getRowNum() > context.getMapper().skipLines()) {
 			return false;
 		} else if (row.getRowNum() == 0) {
-			Iterator<Cell> cellIterator = row.cellIterator();
+			Iterator<SheetCell> cellIterator = row.cellIterator();
 			List<String> sheetHeaders = new ArrayList<>();
+			Map<Integer, String> headersByColumn = new HashMap<>();
 			while (cellIterator.hasNext()) {
-				Cell cell = cellIterator.next();
+				SheetCell cell = cellIterator.next();
 				sheetHeaders.add(cell.getStringCellValue());
+				headersByColumn.put(cell.getColumnIndex(), cell.getStringCellValue());
+			}
+			context.version = Integer.parseInt(sheetHeaders.get(0));
+			synchronized (headers) {
+				while (headers.size() <= row.getSheetIndex()) {
+					headers.add(new ArrayList<>());
+				}
+				headers.set(row.getSheetIndex(), sheetHeaders);
+			}
+			if (headerBinding) {
+				sheetPlans.put(row.getSheetIndex(), CsvLineBinder.of(getLineType()).compile(headersByColumn, getConversionService()));
 			}
-			Sheet sheet = row.getSheet();
-			version = Integer.parseInt(sheetHeaders.get(0));
-			headers.add(sheet.getWorkbook().getSheetIndex(sheet), sheetHeaders);
 		}
 		return true;
 	}
 
+	private List<String> getSheetHeaders(int sheetIndex) {
+		synchronized (headers) {
+			return headers.size() > sheetIndex ? headers.get(sheetIndex) : new ArrayList<>();
+		}
+	}
+
+	private ConversionService getConversionService() {
+		return Optional.ofNullable(conversionService).orElse(CellValueConverters.DEFAULT_CONVERSION_SERVICE);
+	}
+
+	/**
+	 * @return The binding plan of the sheet: by header if resolved on its header row, by position otherwise
+	 */
+	private CsvLineBinder.Plan getPlan(int sheetIndex) {
+		CsvLineBinder.Plan plan = sheetPlans.get(sheetIndex);
+		if (plan == null) {
+			if (positionalPlan == null) {
+				positionalPlan = CsvLineBinder.of(getLineType()).compile(Collections.emptyMap(), getConversionService());
+			}
+			plan = positionalPlan;
+		}
+		return plan;
+	}
+
 	private void initialize(Function<Integer, CsvImportMapper<T, S>> mapper) {
 		Function<Integer, CsvImportMapper<T, S>> defaultMapper = version -> new CsvImportMapper<T, S>() {
 			@Override
@@ -284,9 +732,11 @@ public abstract class CsvFileReader<T, S extends CsvLine<T>> extends FileReader<
 		this.lineMessageFunction = node -> "Imported instance";
 		this.headerMessageSupplier = () -> "The table has headers";
 		this.emptyLineMessageFunction = index -> "Row at index " + (index + 1) + " is empty (EOF)";
+		this.blankLineMessageFunction = index -> "Row at index " + (index + 1) + " is empty";
 		this.ignoredLineMessageFunction = index -> "Row at index " + (index + 1) + " is ignored";
 		this.emptyCellValueEvaluatorFunction = cellValue -> cellValue.isEmpty();
-		this.conversionService = new DefaultConversionService();
+		this.fileMetadataValidator = Optional.empty();
+		this.conversionService = CellValueConverters.DEFAULT_CONVERSION_SERVICE;
 		dataFormatter = new DataFormatter();
 	}
 
@@ -307,115 +757,106 @@ public abstract class CsvFileReader<T, S extends CsvLine<T>> extends FileReader<
 		return errorLine;
 	}
 
-	private boolean mapRowToCsvLine(List<String> headers, Row row, S csvLine) throws FileReaderException {
+	private boolean mapRowToCsvLine(List<String> headers, SheetRow row, S csvLine, ParseContext context) throws FileReaderException {
 
-		Iterator<Cell> cellIterator = row.cellIterator();
-		List<Field> csvLineFields = FieldUtils.getFieldsListWithAnnotation(csvLine.getClass(), CsvColumn.class);
+		Iterator<SheetCell> cellIterator = row.cellIterator();
+		CsvLineBinder.Plan plan = getPlan(row.getSheetIndex());
 
 		boolean isEmptyRow = true;
 		while (cellIterator.hasNext()) {
-			Cell cell = cellIterator.next();
-			Object cellValue = extractCellValue(cell);
-
-			boolean isEmptyCell = emptyCellValueEvaluatorFunction.apply(cellValue.toString());
-			isEmptyRow &= isEmptyCell;
-
-			if (isEmptyCell) {
+			SheetCell cell = cellIterator.next();
+			// Cells of unbound columns are neither formatted nor taken into account to tell whether the row is empty
+			CsvLineBinder.ColumnBinding binding = plan.getBinding(cell.getColumnIndex());
+			if (binding == null) {
 				continue;
 			}
+			Object cellValue;
+			try {
+				cellValue = typedCellValues ? extractTypedCellValue(cell, binding.getTypedValue()) : null;
+			} catch (IllegalArgumentException e) {
+				throw bindingException(headers, row, cell, binding, cell.getNumericCellValue(), e);
+			}
+			if (cellValue == null) {
+				cellValue = cell.getCellValue(context.dataFormatter);
+				if (emptyCellValueEvaluatorFunction.apply(cellValue.toString())) {
+					continue;
+				}
+			}
+			isEmptyRow = false;
 
-			for (Field field : csvLineFields) {
-				if (field.getAnnotation(CsvColumn.class).value() == cell.getColumnIndex()) {
-					try {
-						Object value = conversionService.convert(cellValue, field.getType());
-						boolean isAccessible = field.isAccessible();
-						field.setAccessible(true);
-						ReflectionUtils.setField(field, csvLine, value);
-						field.setAccessible(isAccessible);
-						break;
-					} catch (Exception e) {
-						LOGGER.error("Error setting field " + getLineType().getCanonicalName() + "." + field.getName() + " (" + field.getType() + ") with value " + cellValue);
-						String header = headers.size() > cell.getColumnIndex() ? headers.get(cell.getColumnIndex()) : String.valueOf(cell.getColumnIndex());
-						throw new FileReaderException(header, cell.getRowIndex(), e);
-					}
+			try {
+				Object value = plan.convert(cell.getColumnIndex(), cellValue);
+				if (binding.isInterned() && value instanceof String) {
+					value = dictionaries.computeIfAbsent(binding.getName(), name -> new ValueDictionary(dictionarySize)).intern((String) value);
 				}
+				binding.set(csvLine, value);
+			} catch (Exception e) {
+				throw bindingException(headers, row, cell, binding, cellValue, e);
 			}
 		}
 		return isEmptyRow;
 	}
 
-	private ImportLine parseRow(Row row, Map<Integer, Integer> processedRowsCountPerSheet) {
-		Sheet sheet = row.getSheet();
-		Workbook workbook = sheet.getWorkbook();
-		List<String> sheetNames = getSheetNames(workbook);
-		Integer totalRowCount = processedRowsCountPerSheet.get(workbook.getNumberOfSheets());
-		Integer rowNum = processedRowsCountPerSheet.get(workbook.getSheetIndex(sheet)) + row.getRowNum();
+	private FileReaderException bindingException(List<String> headers, SheetRow row, SheetCell cell, CsvLineBinder.ColumnBinding binding, Object cellValue, Exception e) {
+		LOGGER.error("Error setting field " + getLineType().getCanonicalName() + "." + binding.getName() + " (" + binding.getType() + ") with value " + cellValue);
+		String header = headers.size() > cell.getColumnIndex() ? headers.get(cell.getColumnIndex()) : String.valueOf(cell.getColumnIndex());
+		return new FileReaderException(header, row.getRowNum(), e);
+	}
+
+	/**
+	 * Bind and map the row. The line is made once the number of selected rows of the previous sheets, which offsets
+	 * its index, is known
+	 *
+	 * @return The line of the row, given the row offset of its sheet
+	 */
+	private IntFunction<ImportLine> parseRow(SheetRow row, ParseContext context, int totalRowCount, List<String> sheetNames) {
+		int rowNum = row.getRowNum();
 		try {
-			ImportLine importerLine;
-			if (fillHeadersOnFirstRow(row)) {
-				importerLine = parseRowForHeadersLine(row, sheet, totalRowCount, rowNum, sheetNames);
+			IntFunction<ImportLine> importerLine;
+			if (fillHeadersOnFirstRow(row, context)) {
+				importerLine = rowOffset -> parseRowForHeadersLine(row, totalRowCount, rowOffset + rowNum, sheetNames);
 			} else {
 				S csvLine = getLineType().newInstance();
-				List<String> sheetHeaders = new ArrayList<>();
-				int sheetIndex = workbook.getSheetIndex(sheet);
-				if (headers.size() > sheetIndex) {
-					sheetHeaders = headers.get(sheetIndex);
-				}
+				List<String> sheetHeaders = getSheetHeaders(row.getSheetIndex());
 
-				if (!mapRowToCsvLine(sheetHeaders, row, csvLine)) {
-					importerLine = parseRowForCsvLine(row, sheet, totalRowCount, rowNum, csvLine, sheetNames);
-					if (ActionType.IGNORE.equals(importerLine.getActionType())) {
-						importerLine = parseRowForIgnoredLine(row, sheet, rowNum, sheetNames);
+				if (!mapRowToCsvLine(sheetHeaders, row, csvLine, context)) {
+					importerLine = parseRowForCsvLine(row, context, totalRowCount, rowNum, csvLine, sheetNames);
+					if (ActionType.IGNORE.equals(getActionType(csvLine))) {
+						importerLine = rowOffset -> parseRowForIgnoredLine(row, rowOffset + rowNum, sheetNames);
 					}
+				} else if (readMode == ReadMode.DELIMITED_TEXT) {
+					// A blank record of delimited text does not end the file
+					importerLine = rowOffset -> parseRowForEmptyLine(row, rowOffset + rowNum, sheetNames, blankLineMessageFunction);
 				} else {
-					importerLine = parseRowForEmptyLine(row, sheet, rowNum, sheetNames);
+					context.sheetSkipper.accept(row.getSheetName());
+					importerLine = rowOffset -> parseRowForEmptyLine(row, rowOffset + rowNum, sheetNames, emptyLineMessageFunction);
 				}
 			}
 			return importerLine;
 		} catch (Exception e) {
-			return makeErrorLine(Level.ERROR, e, sheet.getSheetName(), rowNum, row.getRowNum(), totalRowCount, sheetNames);
+			int indexInGroup = row.getRowNum();
+			return rowOffset -> makeErrorLine(Level.ERROR, e, row.getSheetName(), rowOffset + rowNum, indexInGroup, totalRowCount, sheetNames);
 		}
 	}
 
 	public ActionType getActionType(S csvLine){
-		BiFunction<Field, S, Object> wrap = (f, line) -> {
-			try {
-				return f.get(line);
-			} catch (IllegalAccessException iae) {
-				LOGGER.error(iae.getMessage(), iae);
-			}
-			return null;
-		};
+		return CsvLineBinder.of(csvLine.getClass()).getActionType(csvLine);
+	}
 
-		return Stream.of(csvLine.getClass().getDeclaredFields())
-				.map(field -> {
-					field.setAccessible(true);
-					return field;
-				})
-				.filter(f -> Optional.ofNullable(wrap.apply(f, csvLine))
-						.filter(value -> CharSequence.class.isAssignableFrom(value.getClass()))
-						.map(CharSequence.class::cast)
-						.map(value -> StringUtils.equalsAnyIgnoreCase(value, DefaultValue.BOOLEAN_FLAGS))
-						.orElse(false) && f.getAnnotation(CsvColumn.class).actionType() != ActionType.PERSIST)
-				.map(f -> f.getAnnotation(CsvColumn.class))
-				.sorted(Comparator.comparingInt(column -> column.actionType().getOrder()))
-				.map(column -> column.actionType())
-				.findFirst()
-				.orElse(ActionType.PERSIST);
-	}
-
-	private ImportLine parseRowForCsvLine(Row row, Sheet sheet, Integer totalRowCount, Integer rowNum, S csvLine, List<String> sheetNames) throws Exception {
-		ImportLine importerLine;
-		if (mapper.apply(version).isNeeded()) {
+	private IntFunction<ImportLine> parseRowForCsvLine(SheetRow row, ParseContext context, int totalRowCount, int rowNum, S csvLine, List<String> sheetNames) throws Exception {
+		IntFunction<ImportLine> importerLine;
+		CsvImportMapper<T, S> versionMapper = context.getMapper();
+		if (versionMapper.isNeeded()) {
 			try {
-				T node = mapper.apply(version).toNode(csvLine);
-				importerLine = ImportMapper.MappedLine.<T> builder()//
-						.actionType(getActionType(csvLine))
+				T node = versionMapper.toNode(csvLine);
+				ActionType actionType = getActionType(csvLine);
+				importerLine = rowOffset -> ImportMapper.MappedLine.<T> builder()//
+						.actionType(actionType)
 						.count(totalRowCount)//
-						.group(sheet.getSheetName())//
+						.group(row.getSheetName())//
 						.groups(sheetNames)
-						.index(rowNum) //
-						.indexInGroup(row.getRowNum() + 1) //
+						.index(rowOffset + rowNum) //
+						.indexInGroup(rowNum + 1) //
 						.excludedIds(Collections.emptySet())
 						.nodes(new ArrayList<>(Arrays.asList(node)))//
 						.severity(Level.INFO)//
@@ -430,41 +871,39 @@ public abstract class CsvFileReader<T, S extends CsvLine<T>> extends FileReader<
 		} else {
 			csvLine.actionType = getActionType(csvLine);
 			csvLine.count = totalRowCount;
-			csvLine.group = sheet.getSheetName();
+			csvLine.group = row.getSheetName();
 			csvLine.groups = sheetNames;
-			csvLine.index = rowNum;
-			csvLine.indexInGroup = row.getRowNum() + 1;
+			csvLine.indexInGroup = rowNum + 1;
 			csvLine.severity = Level.INFO;
 			csvLine.saveDepth = new AtomicInteger(0);
 			csvLine.excludedIds = Collections.emptySet();
-			importerLine = csvLine;
+			importerLine = rowOffset -> {
+				csvLine.index = rowOffset + rowNum;
+				return csvLine;
+			};
 		}
 		return importerLine;
 	}
 
-	private ImportLine parseRowForEmptyLine(Row row, Sheet sheet, Integer rowNum, List<String> sheetNames) {
+	private ImportLine parseRowForEmptyLine(SheetRow row, int rowNum, List<String> sheetNames, Function<Integer, String> messageFunction) {
 		CsvLine<T> importerLine = new CsvLine<>();
 		importerLine.count = rowNum;
-		importerLine.group = sheet.getSheetName();
+		importerLine.group = row.getSheetName();
 		importerLine.groups = sheetNames;
 		importerLine.index = rowNum;
 		importerLine.indexInGroup = row.getRowNum() + 1;
-		importerLine.message = emptyLineMessageFunction.apply(rowNum);
+		importerLine.message = messageFunction.apply(rowNum);
 		importerLine.severity = Level.INFO;
 		importerLine.saveDepth = new AtomicInteger(0);
 		importerLine.excludedIds = Collections.emptySet();
-		Workbook workbook = sheet.getWorkbook();
-		if (workbook.getSheetIndex(sheet.getSheetName()) < workbook.getNumberOfSheets()) {
-			skip(sheet.getSheetName());
-		}
 		return importerLine;
 	}
 
 
-	private ImportLine parseRowForIgnoredLine(Row row, Sheet sheet, Integer rowNum, List<String> sheetNames) {
+	private ImportLine parseRowForIgnoredLine(SheetRow row, int rowNum, List<String> sheetNames) {
 		CsvLine<T> importerLine = new CsvLine<>();
 		importerLine.count = rowNum;
-		importerLine.group = sheet.getSheetName();
+		importerLine.group = row.getSheetName();
 		importerLine.groups = sheetNames;
 		importerLine.index = rowNum;
 		importerLine.indexInGroup = row.getRowNum() + 1;
@@ -475,10 +914,10 @@ public abstract class CsvFileReader<T, S extends CsvLine<T>> extends FileReader<
 		return importerLine;
 	}
 
-	private ImportLine parseRowForHeadersLine(Row row, Sheet sheet, Integer totalRowCount, Integer rowNum, List<String> sheetNames) {
+	private ImportLine parseRowForHeadersLine(SheetRow row, int totalRowCount, int rowNum, List<String> sheetNames) {
 		CsvLine<T> importerLine = new CsvLine<>();
 		importerLine.count = totalRowCount;
-		importerLine.group = sheet.getSheetName();
+		importerLine.group = row.getSheetName();
 		importerLine.groups = sheetNames;
 		importerLine.index = rowNum;
 		importerLine.indexInGroup = row.getRowNum() + 1;
@@ -489,10 +928,132 @@ public abstract class CsvFileReader<T, S extends CsvLine<T>> extends FileReader<
 		return importerLine;
 	}
 
+	/**
+	 * @return The workbook shared by {@link #createFilter()} and {@link #read(ReadFilter)}, so that the file is opened
+	 * and parsed only once per import
+	 */
+	private WorkbookHandle getWorkbook() throws IOException, OpenXML4JException, SAXException {
+		if (workbook == null) {
+			workbook = admissionPolicy == null ? openWorkbook() : openAdmittedWorkbook();
+		}
+		return workbook;
+	}
+
+	/**
+	 * @return The workbook opened with the read mode of its admission, which is released when the workbook is closed
+	 */
+	private WorkbookHandle openAdmittedWorkbook() throws IOException, OpenXML4JException, SAXException {
+		// The copy of an XLSX file made to estimate it is handed over to the streaming engine, if it reads the file
+		AtomicReference<File> workbookCopy = new AtomicReference<>();
+		try {
+			WorkbookEstimate estimate;
+			if (readMode != ReadMode.DELIMITED_TEXT && FileMagic.OOXML == detectFileMagic()) {
+				workbookCopy.set(copyToTempFile());
+				estimate = WorkbookEstimator.estimateXlsx(getFile(), workbookCopy.get(), sharedStringsCacheSize);
+			} else {
+				estimate = estimateWorkbook();
+			}
+			AdmissionPolicy.Admission admission = admissionPolicy.admit(estimate, readMode);
+			try {
+				return new AdmittedWorkbookHandle(openWorkbook(admission.getReadMode(), workbookCopy), admission);
+			} catch (IOException | OpenXML4JException | SAXException | RuntimeException e) {
+				admission.release();
+				throw e;
+			}
+		} finally {
+			File unusedCopy = workbookCopy.getAndSet(null);
+			if (unusedCopy != null) {
+				Files.deleteIfExists(unusedCopy.toPath());
+			}
+		}
+	}
+
+	/**
+	 * Estimate the heap needed to read the file in each mode, without opening it as a workbook
+	 */
+	public WorkbookEstimate estimateWorkbook() throws IOException {
+		if (readMode == ReadMode.DELIMITED_TEXT) {
+			return WorkbookEstimator.estimateDelimitedText(getFile(), Runtime.getRuntime().availableProcessors(), DelimitedTextWorkbookHandle.BLOCK_SIZE);
+		}
+		return WorkbookEstimator.estimateWorkbook(getFile(), detectFileMagic(), sharedStringsCacheSize);
+	}
+
+	/**
+	 * Open the file with the engine of the current {@link ReadMode}
+	 *
+	 * @return The workbook, to be closed by the caller
+	 */
+	public WorkbookHandle openWorkbook() throws IOException, OpenXML4JException, SAXException {
+		return openWorkbook(readMode, new AtomicReference<>());
+	}
+
+	/**
+	 * @param workbookCopy The copy of the file, taken by the streaming engines instead of copying the file again
+	 */
+	private WorkbookHandle openWorkbook(ReadMode readMode, AtomicReference<File> workbookCopy) throws IOException, OpenXML4JException, SAXException {
+		if (parsedFileCache == null || readMode == ReadMode.DELIMITED_TEXT) {
+			return openSourceWorkbook(readMode, workbookCopy);
+		}
+		AtomicBoolean sourceOpened = new AtomicBoolean();
+		WorkbookHandle cachedWorkbook = parsedFileCache.open(parsedFileCache.keyOf(getFile(), readMode.name()), () -> {
+			sourceOpened.set(true);
+			return openSourceWorkbook(readMode, workbookCopy);
+		});
+		// The source validates the file when it is opened
+		if (!sourceOpened.get()) {
+			try {
+				fileMetadataValidator.ifPresent(validator -> validator.accept(getFile()));
+			} catch (RuntimeException e) {
+				cachedWorkbook.close();
+				throw e;
+			}
+		}
+		return cachedWorkbook;
+	}
+
+	private WorkbookHandle openSourceWorkbook(ReadMode readMode, AtomicReference<File> workbookCopy) throws IOException, OpenXML4JException, SAXException {
+		if (readMode == ReadMode.DELIMITED_TEXT) {
+			fileMetadataValidator.ifPresent(validator -> validator.accept(getFile()));
+			return new DelimitedTextWorkbookHandle(getFile(), delimiter, charset, Runtime.getRuntime().availableProcessors());
+		}
+		FileMagic fileMagic = readMode == ReadMode.STREAMING ? detectFileMagic() : null;
+		if (FileMagic.OOXML == fileMagic || FileMagic.OLE2 == fileMagic) {
+			fileMetadataValidator.ifPresent(validator -> validator.accept(getFile()));
+			File workbookFile = workbookCopy.getAndSet(null);
+			if (workbookFile == null) {
+				workbookFile = copyToTempFile();
+			}
+			try {
+				if (FileMagic.OLE2 == fileMagic) {
+					return new HssfStreamingWorkbookHandle(workbookFile);
+				}
+				return new XssfStreamingWorkbookHandle(workbookFile, sharedStringsCacheSize);
+			} catch (IOException | OpenXML4JException | SAXException | RuntimeException e) {
+				Files.deleteIfExists(workbookFile.toPath());
+				throw e;
+			}
+		}
+		return new DomWorkbookHandle(initializeWorkbook());
+	}
+
 	public Workbook initializeWorkbook() throws IOException, InvalidFormatException {
 		fileMetadataValidator.ifPresent(validator -> validator.accept(getFile()));
 		Workbook workbook = WorkbookFactory.create(getFile().getInputStream());
 		return workbook;
 	}
+
+	private FileMagic detectFileMagic() throws IOException {
+		try (InputStream inputStream = FileMagic.prepareToCheckMagic(getFile().getInputStream())) {
+			return FileMagic.valueOf(inputStream);
+		}
+	}
+
+	private File copyToTempFile() throws IOException {
+		File workbookFile = File.createTempFile("importer-", ".tmp");
+		try (InputStream inputStream = getFile().getInputStream()) {
+			Files.copy(inputStream, workbookFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return workbookFile;
+	}
 }
 
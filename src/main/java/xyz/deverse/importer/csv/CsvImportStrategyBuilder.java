@@ -1,6 +1,9 @@
 package xyz.deverse.importer.csv;
 
 import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -21,7 +24,34 @@ public abstract class CsvImportStrategyBuilder<T, S extends CsvFileReader.CsvLin
         Function<Integer,CsvFileReader.CsvImportMapper<T, S>> rowMapper;
 
         Consumer<MultipartFile> fileMetadataValidator;
-        
+
+        CsvFileReader.ReadMode readMode = CsvFileReader.ReadMode.DOM;
+
+        boolean typedCellValues;
+
+        boolean headerBinding;
+
+        int sharedStringsCacheSize;
+
+        char delimiter = ',';
+
+        Charset charset = StandardCharsets.UTF_8;
+
+        int sheetParallelism = 1;
+
+        int rowParallelism = 1;
+
+        AdmissionPolicy admissionPolicy;
+
+        ParsedFileCache parsedFileCache;
+
+        int dictionarySize = 1024;
+
+        /**
+         * The plan binding the cells to the line by position, compiled once with the strategy
+         */
+        CsvLineBinder.Plan positionalPlan;
+
         protected CsvImportStrategy(Class<T> nodeType, Class<S> lineType, Function<Integer,CsvFileReader.CsvImportMapper<T, S>> rowMapper, ConversionService conversionService, Consumer<MultipartFile> fileMetadataValidator, PostProcessCondition postProcessCondition, UnaryOperator<ReadFilter> filterModifier) {
             super();
             this.lineType = lineType;
@@ -31,6 +61,9 @@ public abstract class CsvImportStrategyBuilder<T, S extends CsvFileReader.CsvLin
             this.fileMetadataValidator = fileMetadataValidator;
             this.postProcessCondition = postProcessCondition;
             this.filterModifier = filterModifier;
+            if (lineType != null) {
+                this.positionalPlan = CsvLineBinder.of(lineType).compile(Collections.emptyMap(), conversionService != null ? conversionService : CellValueConverters.DEFAULT_CONVERSION_SERVICE);
+            }
         }
 
         @SuppressWarnings("unchecked")
@@ -38,8 +71,20 @@ public abstract class CsvImportStrategyBuilder<T, S extends CsvFileReader.CsvLin
         public void parse() {
             CsvFileReader<T, S> csvFileReader = initializeReader(file);
             csvFileReader.setConversionService(conversionService);
+            csvFileReader.setPositionalPlan(positionalPlan);
             csvFileReader.setLineMessageFunction(node -> node.getClass().getSimpleName());
             csvFileReader.setFileMetadataValidator(Optional.ofNullable(fileMetadataValidator));
+            csvFileReader.setReadMode(readMode);
+            csvFileReader.setTypedCellValues(typedCellValues);
+            csvFileReader.setHeaderBinding(headerBinding);
+            csvFileReader.setSharedStringsCacheSize(sharedStringsCacheSize);
+            csvFileReader.setDelimiter(delimiter);
+            csvFileReader.setCharset(charset);
+            csvFileReader.setSheetParallelism(sheetParallelism);
+            csvFileReader.setRowParallelism(rowParallelism);
+            csvFileReader.setAdmissionPolicy(admissionPolicy);
+            csvFileReader.setParsedFileCache(parsedFileCache);
+            csvFileReader.setDictionarySize(dictionarySize);
             csvFileReader.setEmptyCellValueEvaluatorFunction(cellValue -> {
                 String trimmedCellValue = cellValue.trim();
                 return trimmedCellValue.isEmpty() || "-".equals(trimmedCellValue);
@@ -73,6 +118,28 @@ public abstract class CsvImportStrategyBuilder<T, S extends CsvFileReader.CsvLin
 
     private UnaryOperator<ReadFilter> filterModifier;
 
+    private CsvFileReader.ReadMode readMode = CsvFileReader.ReadMode.DOM;
+
+    private boolean typedCellValues;
+
+    private boolean headerBinding;
+
+    private int sharedStringsCacheSize;
+
+    private char delimiter = ',';
+
+    private Charset charset = StandardCharsets.UTF_8;
+
+    private int sheetParallelism = 1;
+
+    private int rowParallelism = 1;
+
+    private AdmissionPolicy admissionPolicy;
+
+    private ParsedFileCache parsedFileCache;
+
+    private int dictionarySize = 1024;
+
     @SuppressWarnings("unchecked")
     public CsvImportStrategyBuilder() {
         Type[] typeParameters = ParameterizedClassTypeResolver.getTypeParameters(getClass());
@@ -105,8 +172,122 @@ public abstract class CsvImportStrategyBuilder<T, S extends CsvFileReader.CsvLin
         return this;
     }
 
+    /**
+     * @param readMode The engine used to read the workbook. Use {@link CsvFileReader.ReadMode#STREAMING} for large files
+     */
+    public CsvImportStrategyBuilder<T, S> withReadMode(CsvFileReader.ReadMode readMode) {
+        this.readMode = readMode;
+        return this;
+    }
+
+    /**
+     * @param typedCellValues True to read numeric, boolean and date cells bound to fields of such types without
+     * formatting them to text first
+     */
+    public CsvImportStrategyBuilder<T, S> withTypedCellValues(boolean typedCellValues) {
+        this.typedCellValues = typedCellValues;
+        return this;
+    }
+
+    /**
+     * @param headerBinding True to bind the fields with a {@link CsvColumn#header()} to the column with that header on
+     * the header row of each sheet, rather than by position
+     */
+    public CsvImportStrategyBuilder<T, S> withHeaderBinding(boolean headerBinding) {
+        this.headerBinding = headerBinding;
+        return this;
+    }
+
+    /**
+     * Store the shared strings table of XLSX workbooks read in {@link CsvFileReader.ReadMode#STREAMING} mode on disk,
+     * so that workbooks with many distinct strings can be read within a fixed heap
+     *
+     * @param cacheSize The number of most recently used strings kept in memory
+     */
+    public CsvImportStrategyBuilder<T, S> withDiskBackedSharedStrings(int cacheSize) {
+        this.sharedStringsCacheSize = cacheSize;
+        return this;
+    }
+
+    /**
+     * @param delimiter The field delimiter of files read in {@link CsvFileReader.ReadMode#DELIMITED_TEXT} mode
+     */
+    public CsvImportStrategyBuilder<T, S> withDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+        return this;
+    }
+
+    /**
+     * @param charset The charset of files read in {@link CsvFileReader.ReadMode#DELIMITED_TEXT} mode
+     */
+    public CsvImportStrategyBuilder<T, S> withCharset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * Parse the sheets of multi-sheet workbooks in parallel, lines being still delivered in sheet order. Sheets of XLS
+     * workbooks read in {@link CsvFileReader.ReadMode#STREAMING} mode are always read one after the other
+     *
+     * @param parallelism The number of sheets parsed at the same time, for instance the number of available processors
+     */
+    public CsvImportStrategyBuilder<T, S> withSheetParallelism(int parallelism) {
+        this.sheetParallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Bind the rows of each sheet in chunks on worker threads, for mappers that are expensive to run. Rows are still
+     * read, and lines delivered to the line processors, in order. Ignored for sheets parsed in parallel
+     *
+     * @param parallelism The number of chunks bound at the same time, for instance the number of available processors
+     */
+    public CsvImportStrategyBuilder<T, S> withRowParallelism(int parallelism) {
+        this.rowParallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Estimate the heap needed by each upload before opening it, and let the policy admit it, change its read mode or
+     * reject it. Share a {@link MemoryBudgetAdmissionPolicy} between the strategies of concurrent imports to hold them
+     * within a global memory budget
+     */
+    public CsvImportStrategyBuilder<T, S> withAdmissionPolicy(AdmissionPolicy admissionPolicy) {
+        this.admissionPolicy = admissionPolicy;
+        return this;
+    }
+
+    /**
+     * Parse each workbook content only once: its rows are cached on disk, keyed by a hash of the content, and replayed
+     * when the same file is uploaded again. Share a {@link ParsedFileCache} between strategies to share its quota
+     */
+    public CsvImportStrategyBuilder<T, S> withParsedFileCache(ParsedFileCache parsedFileCache) {
+        this.parsedFileCache = parsedFileCache;
+        return this;
+    }
+
+    /**
+     * Bound the distinct values shared between the lines of each {@link CsvColumn#interned() interned} column
+     */
+    public CsvImportStrategyBuilder<T, S> withDictionarySize(int dictionarySize) {
+        this.dictionarySize = dictionarySize;
+        return this;
+    }
+
     public CsvImportStrategy build() {
-        return new CsvImportStrategy(this.nodeType, this.lineType, this.rowMapper, this.conversionService, this.fileMetadataValidator, this.postProcessCondition, this.filterModifier) {
+        CsvImportStrategy strategy = new CsvImportStrategy(this.nodeType, this.lineType, this.rowMapper, this.conversionService, this.fileMetadataValidator, this.postProcessCondition, this.filterModifier) {
         };
+        strategy.readMode = this.readMode;
+        strategy.typedCellValues = this.typedCellValues;
+        strategy.headerBinding = this.headerBinding;
+        strategy.sharedStringsCacheSize = this.sharedStringsCacheSize;
+        strategy.delimiter = this.delimiter;
+        strategy.charset = this.charset;
+        strategy.sheetParallelism = this.sheetParallelism;
+        strategy.rowParallelism = this.rowParallelism;
+        strategy.admissionPolicy = this.admissionPolicy;
+        strategy.parsedFileCache = this.parsedFileCache;
+        strategy.dictionarySize = this.dictionarySize;
+        return strategy;
     }
 }
\ No newline at end of file
@@ -0,0 +1,254 @@
+package xyz.deverse.importer.csv;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.converter.Converter;
+
+import xyz.deverse.importer.ActionType;
+import xyz.deverse.importer.misc.DefaultValue;
+
+/**
+ * Binding of the {@link CsvColumn} fields of a line type, compiled once per class. The fields are resolved to columns
+ * in a {@link Plan}, where each column index is looked up directly in an array holding the setter of the field bound
+ * to it. The fields carrying an {@link ActionType} are kept sorted by action order
+ */
+class CsvLineBinder {
+
+	private static final ClassValue<CsvLineBinder> BINDERS = new ClassValue<CsvLineBinder>() {
+		@Override
+		protected CsvLineBinder computeValue(Class<?> lineType) {
+			return new CsvLineBinder(lineType);
+		}
+	};
+
+	private final List<ColumnBinding> bindings = new ArrayList<>();
+
+	private final ActionField[] actionFields;
+
+	static CsvLineBinder of(Class<?> lineType) {
+		return BINDERS.get(lineType);
+	}
+
+	private CsvLineBinder(Class<?> lineType) {
+		for (Field field : FieldUtils.getFieldsListWithAnnotation(lineType, CsvColumn.class)) {
+			bindings.add(new ColumnBinding(field));
+		}
+		actionFields = Stream.of(lineType.getDeclaredFields())
+				.filter(field -> field.isAnnotationPresent(CsvColumn.class))
+				.filter(field -> field.getAnnotation(CsvColumn.class).actionType() != ActionType.PERSIST)
+				.map(ActionField::new)
+				.sorted(Comparator.comparingInt(actionField -> actionField.actionType.getOrder()))
+				.toArray(ActionField[]::new);
+	}
+
+	/**
+	 * Resolve the column of each field. A field with a {@link CsvColumn#header()} found among the given headers is
+	 * bound to the column of that header, ignoring case and surrounding spaces; any other field is bound to its
+	 * {@link CsvColumn#value()} position. When several fields are bound to the same column, the first one wins
+	 *
+	 * @param headersByColumn The headers of the sheet, by column index, or an empty map to bind by position only
+	 * @return The bindings and converters of the sheet
+	 */
+	Plan compile(Map<Integer, String> headersByColumn, ConversionService conversionService) {
+		Map<String, Integer> columnsByHeader = new HashMap<>();
+		headersByColumn.forEach((column, header) -> columnsByHeader.putIfAbsent(normalizeHeader(header), column));
+		Map<Integer, ColumnBinding> bindingsByColumn = new HashMap<>();
+		for (ColumnBinding binding : bindings) {
+			Integer column = binding.header.isEmpty() ? null : columnsByHeader.get(binding.header);
+			int target = column == null ? binding.position : column;
+			if (target >= 0) {
+				bindingsByColumn.putIfAbsent(target, binding);
+			}
+		}
+		return new Plan(bindingsByColumn, conversionService);
+	}
+
+	private static String normalizeHeader(String header) {
+		return header == null ? "" : header.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * @return The action of the first field, by action order, whose value is one of the
+	 * {@link DefaultValue#BOOLEAN_FLAGS}, or {@link ActionType#PERSIST} if there is none
+	 */
+	ActionType getActionType(Object line) {
+		for (ActionField actionField : actionFields) {
+			Object value = actionField.get(line);
+			if (value instanceof CharSequence && DefaultValue.isBooleanFlag((CharSequence) value)) {
+				return actionField.actionType;
+			}
+		}
+		return ActionType.PERSIST;
+	}
+
+	private static MethodHandle unreflect(Field field, boolean setter) {
+		try {
+			field.setAccessible(true);
+			return setter
+					? MethodHandles.lookup().unreflectSetter(field).asType(ColumnBinding.SETTER_TYPE)
+					: MethodHandles.lookup().unreflectGetter(field).asType(ActionField.GETTER_TYPE);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Cannot bind field " + field, e);
+		}
+	}
+
+	/**
+	 * Value read from a cell without formatting it, according to the type of the bound field
+	 */
+	enum TypedValue {
+		NONE, NUMBER, INTEGER, BOOLEAN, DATE, LOCAL_DATE, LOCAL_DATE_TIME;
+
+		private static final List<Class<?>> INTEGER_TYPES = Arrays.asList(Byte.class, Short.class, Integer.class, Long.class, BigInteger.class);
+
+		static TypedValue of(Class<?> type) {
+			Class<?> wrapperType = ClassUtils.primitiveToWrapper(type);
+			if (INTEGER_TYPES.contains(wrapperType)) {
+				return INTEGER;
+			} else if (Number.class.isAssignableFrom(wrapperType)) {
+				return NUMBER;
+			} else if (type == boolean.class || type == Boolean.class) {
+				return BOOLEAN;
+			} else if (type == Date.class) {
+				return DATE;
+			} else if (type == LocalDate.class) {
+				return LOCAL_DATE;
+			} else if (type == LocalDateTime.class) {
+				return LOCAL_DATE_TIME;
+			}
+			return NONE;
+		}
+	}
+
+	/**
+	 * The fields bound to the columns of a sheet, with the converters of their values, looked up by column index
+	 */
+	static class Plan {
+
+		private final ColumnBinding[] bindings;
+
+		private final Converter<Object, Object>[] converters;
+
+		@SuppressWarnings("unchecked")
+		private Plan(Map<Integer, ColumnBinding> bindingsByColumn, ConversionService conversionService) {
+			int columnCount = bindingsByColumn.keySet().stream().mapToInt(column -> column + 1).max().orElse(0);
+			bindings = new ColumnBinding[columnCount];
+			converters = new Converter[columnCount];
+			bindingsByColumn.forEach((column, binding) -> {
+				bindings[column] = binding;
+				converters[column] = CellValueConverters.of(binding.getType(), conversionService);
+			});
+		}
+
+		/**
+		 * @return The binding of the given column, or null if no field is bound to it
+		 */
+		ColumnBinding getBinding(int column) {
+			return column >= 0 && column < bindings.length ? bindings[column] : null;
+		}
+
+		/**
+		 * @return The value converted to the type of the field bound to the given column
+		 */
+		Object convert(int column, Object value) {
+			return converters[column].convert(value);
+		}
+	}
+
+	static class ColumnBinding {
+
+		private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+		private final int position;
+
+		private final String header;
+
+		private final String name;
+
+		private final Class<?> type;
+
+		private final TypedValue typedValue;
+
+		private final boolean interned;
+
+		private final MethodHandle setter;
+
+		private ColumnBinding(Field field) {
+			CsvColumn column = field.getAnnotation(CsvColumn.class);
+			this.position = column.value();
+			this.header = normalizeHeader(column.header());
+			this.name = field.getName();
+			this.type = field.getType();
+			this.typedValue = TypedValue.of(type);
+			this.interned = column.interned();
+			this.setter = unreflect(field, true);
+		}
+
+		String getName() {
+			return name;
+		}
+
+		Class<?> getType() {
+			return type;
+		}
+
+		TypedValue getTypedValue() {
+			return typedValue;
+		}
+
+		boolean isInterned() {
+			return interned;
+		}
+
+		void set(Object line, Object value) throws Exception {
+			try {
+				setter.invokeExact(line, value);
+			} catch (Exception | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new IllegalStateException(t);
+			}
+		}
+	}
+
+	private static class ActionField {
+
+		private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+		private final ActionType actionType;
+
+		private final MethodHandle getter;
+
+		private ActionField(Field field) {
+			this.actionType = field.getAnnotation(CsvColumn.class).actionType();
+			this.getter = unreflect(field, false);
+		}
+
+		private Object get(Object line) {
+			try {
+				return getter.invokeExact(line);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new IllegalStateException(t);
+			}
+		}
+	}
+}
@@ -0,0 +1,323 @@
+package xyz.deverse.importer.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Delimited text file (RFC 4180) read as a workbook with a single sheet, named after the file. Fields may be quoted,
+ * a quote inside a quoted field being escaped by doubling it, and records end with LF or CRLF.
+ * <p>
+ * The bytes are scanned directly, so the delimiter, the quote and the line breaks must be encoded as in ASCII, which
+ * holds for UTF-8 and the single byte charsets. The file is cut in blocks at record boundaries, tracking the quotes
+ * so that a line break inside a quoted field is never taken as a boundary, and the blocks are parsed in parallel.
+ * Rows are delivered in file order, with a bounded number of blocks held in memory
+ */
+class DelimitedTextWorkbookHandle implements WorkbookHandle {
+
+	static final int BLOCK_SIZE = 1 << 20;
+
+	private static final byte QUOTE = '"';
+
+	private static final byte CR = '\r';
+
+	private static final byte LF = '\n';
+
+	private final MultipartFile file;
+	private final String sheetName;
+	private final byte delimiter;
+	private final Charset charset;
+	private final int parallelism;
+
+	/**
+	 * @param parallelism The number of blocks parsed at the same time
+	 */
+	DelimitedTextWorkbookHandle(MultipartFile file, char delimiter, Charset charset, int parallelism) {
+		for (char c : new char[] { delimiter, (char) QUOTE, (char) CR, (char) LF }) {
+			byte[] encoded = String.valueOf(c).getBytes(charset);
+			if (c > 0x7F || encoded.length != 1 || encoded[0] != c) {
+				throw new IllegalArgumentException("Cannot read delimited text with delimiter '" + delimiter + "' in " + charset);
+			}
+		}
+		this.file = file;
+		this.sheetName = file.getOriginalFilename() == null ? "" : file.getOriginalFilename();
+		this.delimiter = (byte) delimiter;
+		this.charset = charset;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	@Override
+	public List<String> getSheetNames() {
+		return Collections.singletonList(sheetName);
+	}
+
+	@Override
+	public Iterator<SheetRow> rowIterator(int sheetIndex) {
+		if (sheetIndex != 0) {
+			throw new IndexOutOfBoundsException("Sheet index (" + sheetIndex + ") is out of range (0..0)");
+		}
+		try {
+			return new RecordIterator(file.getInputStream());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot open " + sheetName, e);
+		}
+	}
+
+	/**
+	 * @return The exact number of records if the file fits in one block, otherwise the file size divided by the
+	 * average record length of its first block
+	 */
+	@Override
+	public int estimateRowCount(int sheetIndex) {
+		try (InputStream inputStream = file.getInputStream()) {
+			byte[] sample = new byte[BLOCK_SIZE];
+			int length = 0;
+			int read;
+			while (length < sample.length && (read = inputStream.read(sample, length, sample.length - length)) >= 0) {
+				length += read;
+			}
+			boolean quoted = false;
+			int lineBreaks = 0;
+			for (int i = 0; i < length; i++) {
+				if (sample[i] == QUOTE) {
+					quoted = !quoted;
+				} else if (sample[i] == LF && !quoted) {
+					lineBreaks++;
+				}
+			}
+			if (length < sample.length) {
+				return length > 0 && sample[length - 1] != LF ? lineBreaks + 1 : lineBreaks;
+			}
+			return lineBreaks == 0 ? -1 : (int) Math.min(Integer.MAX_VALUE, file.getSize() * lineBreaks / length);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read " + sheetName, e);
+		}
+	}
+
+	@Override
+	public void close() {
+		// Every row iterator holds its own stream
+	}
+
+	private class RecordIterator implements Iterator<SheetRow>, Closeable {
+
+		private final InputStream inputStream;
+		private final Deque<CompletableFuture<List<StreamedSheetRow>>> pendingBlocks = new ArrayDeque<>();
+		private byte[] buffer = new byte[BLOCK_SIZE];
+		private int bufferLength;
+		private boolean endOfFile;
+		private boolean firstBlock = true;
+		private Iterator<StreamedSheetRow> rows = Collections.emptyIterator();
+		private int rowOffset;
+		private boolean closed;
+
+		RecordIterator(InputStream inputStream) {
+			this.inputStream = inputStream;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!rows.hasNext() && !closed) {
+				fillPendingBlocks();
+				if (pendingBlocks.isEmpty()) {
+					close();
+				} else {
+					List<StreamedSheetRow> blockRows = pendingBlocks.pollFirst().join();
+					for (StreamedSheetRow row : blockRows) {
+						row.setRowNum(rowOffset + row.getRowNum());
+					}
+					rowOffset += blockRows.size();
+					rows = blockRows.iterator();
+				}
+			}
+			return rows.hasNext();
+		}
+
+		@Override
+		public SheetRow next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return rows.next();
+		}
+
+		@Override
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			pendingBlocks.forEach(block -> block.cancel(false));
+			pendingBlocks.clear();
+			try {
+				inputStream.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException("Cannot close " + sheetName, e);
+			}
+		}
+
+		private void fillPendingBlocks() {
+			while (pendingBlocks.size() < parallelism) {
+				byte[] block = nextBlock();
+				if (block == null) {
+					return;
+				}
+				pendingBlocks.addLast(parallelism > 1
+						? CompletableFuture.supplyAsync(() -> parseBlock(block))
+						: CompletableFuture.completedFuture(parseBlock(block)));
+			}
+		}
+
+		/**
+		 * @return The next bytes of the file up to a record boundary, or null at the end of the file
+		 */
+		private byte[] nextBlock() {
+			try {
+				int cut = -1;
+				while (cut < 0) {
+					if (bufferLength == buffer.length) {
+						// A single record does not fit in the buffer
+						buffer = Arrays.copyOf(buffer, buffer.length * 2);
+					}
+					int read = endOfFile ? -1 : inputStream.read(buffer, bufferLength, buffer.length - bufferLength);
+					if (read < 0) {
+						endOfFile = true;
+						cut = bufferLength;
+					} else {
+						bufferLength += read;
+						if (bufferLength == buffer.length) {
+							cut = lastRecordBoundary();
+						}
+					}
+				}
+				if (cut == 0) {
+					return null;
+				}
+				int start = 0;
+				if (firstBlock) {
+					firstBlock = false;
+					if (charset.equals(StandardCharsets.UTF_8) && cut >= 3 && buffer[0] == (byte) 0xEF && buffer[1] == (byte) 0xBB && buffer[2] == (byte) 0xBF) {
+						start = 3;
+					}
+				}
+				byte[] block = Arrays.copyOfRange(buffer, start, cut);
+				System.arraycopy(buffer, cut, buffer, 0, bufferLength - cut);
+				bufferLength -= cut;
+				return block;
+			} catch (IOException e) {
+				throw new UncheckedIOException("Cannot read " + sheetName, e);
+			}
+		}
+
+		/**
+		 * @return The position following the last line break of the buffer outside of quotes, or -1 if there is none
+		 */
+		private int lastRecordBoundary() {
+			boolean quoted = false;
+			int boundary = -1;
+			for (int i = 0; i < bufferLength; i++) {
+				byte b = buffer[i];
+				if (b == QUOTE) {
+					quoted = !quoted;
+				} else if (b == LF && !quoted) {
+					boundary = i + 1;
+				}
+			}
+			return boundary;
+		}
+	}
+
+	/**
+	 * @return The records of the block, numbered from the start of the block
+	 */
+	private List<StreamedSheetRow> parseBlock(byte[] block) {
+		List<StreamedSheetRow> rows = new ArrayList<>();
+		int length = block.length;
+		int i = 0;
+		while (i < length) {
+			StreamedSheetRow row = new StreamedSheetRow(sheetName, 0, rows.size());
+			rows.add(row);
+			if (block[i] == CR || block[i] == LF) {
+				// Blank record, without any cell
+				i = skipLineBreak(block, i);
+				continue;
+			}
+			int column = 0;
+			boolean endOfRecord = false;
+			while (!endOfRecord) {
+				String value;
+				if (i < length && block[i] == QUOTE) {
+					int end = i + 1;
+					boolean escaped = false;
+					while (end < length && (block[end] != QUOTE || (end + 1 < length && block[end + 1] == QUOTE))) {
+						if (block[end] == QUOTE) {
+							escaped = true;
+							end++;
+						}
+						end++;
+					}
+					value = escaped ? unescape(block, i + 1, end) : new String(block, i + 1, end - i - 1, charset);
+					i = Math.min(end + 1, length);
+					int trailingStart = i;
+					// Be lenient with characters between the closing quote and the delimiter
+					while (i < length && block[i] != delimiter && block[i] != CR && block[i] != LF) {
+						i++;
+					}
+					if (i > trailingStart) {
+						value += new String(block, trailingStart, i - trailingStart, charset);
+					}
+				} else {
+					int start = i;
+					while (i < length && block[i] != delimiter && block[i] != CR && block[i] != LF) {
+						i++;
+					}
+					value = new String(block, start, i - start, charset);
+				}
+				row.addCell(StreamedSheetCell.ofString(column++, value));
+				if (i < length && block[i] == delimiter) {
+					i++;
+				} else {
+					i = skipLineBreak(block, i);
+					endOfRecord = true;
+				}
+			}
+		}
+		return rows;
+	}
+
+	private static int skipLineBreak(byte[] block, int i) {
+		if (i < block.length && block[i] == CR) {
+			i++;
+		}
+		if (i < block.length && block[i] == LF) {
+			i++;
+		}
+		return i;
+	}
+
+	private String unescape(byte[] block, int start, int end) {
+		byte[] value = new byte[end - start];
+		int length = 0;
+		for (int i = start; i < end; i++) {
+			value[length++] = block[i];
+			if (block[i] == QUOTE) {
+				i++;
+			}
+		}
+		return new String(value, 0, length, charset);
+	}
+}
@@ -0,0 +1,177 @@
+package xyz.deverse.importer.csv;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+
+/**
+ * Shared strings table of an XLSX workbook stored in temporary files instead of the heap. The strings are written
+ * once, in UTF-8, to a data file, and their offsets to an index file; lookups read them back with positional reads.
+ * The most recently used strings are kept in memory, up to the given cache size.
+ * <p>
+ * As in the usermodel, the phonetic runs of rich text strings are not part of the string
+ */
+class DiskBackedSharedStrings implements Closeable {
+
+	private final File indexFile;
+	private final File dataFile;
+	private final FileChannel index;
+	private final FileChannel data;
+	private final ByteBuffer offsets = ByteBuffer.allocate(2 * Long.BYTES);
+	private final Map<Integer, String> cache;
+	private int count;
+
+	DiskBackedSharedStrings(OPCPackage pkg, XMLInputFactory xmlInputFactory, int cacheSize) throws IOException, InvalidFormatException {
+		this.indexFile = File.createTempFile("importer-sst-", ".idx");
+		this.dataFile = File.createTempFile("importer-sst-", ".dat");
+		this.cache = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+				return size() > cacheSize;
+			}
+		};
+		FileChannel index = null;
+		FileChannel data = null;
+		try {
+			List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+			if (!parts.isEmpty()) {
+				write(parts.get(0), xmlInputFactory);
+			}
+			index = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+			data = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ);
+		} catch (IOException | RuntimeException e) {
+			if (index != null) {
+				index.close();
+			}
+			Files.deleteIfExists(indexFile.toPath());
+			Files.deleteIfExists(dataFile.toPath());
+			throw e;
+		}
+		this.index = index;
+		this.data = data;
+	}
+
+	private void write(PackagePart part, XMLInputFactory xmlInputFactory) throws IOException {
+		try (InputStream inputStream = part.getInputStream();
+				DataOutputStream indexOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile.toPath())));
+				OutputStream dataOutput = new BufferedOutputStream(Files.newOutputStream(dataFile.toPath()))) {
+			XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+			long offset = 0;
+			indexOutput.writeLong(offset);
+			StringBuilder text = new StringBuilder();
+			int depth = 0;
+			int phoneticDepth = -1;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					depth++;
+					String name = reader.getLocalName();
+					if ("si".equals(name)) {
+						text.setLength(0);
+					} else if ("rPh".equals(name) && phoneticDepth < 0) {
+						phoneticDepth = depth;
+					} else if ("t".equals(name) && phoneticDepth < 0) {
+						text.append(reader.getElementText());
+						depth--;
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					if (depth == phoneticDepth) {
+						phoneticDepth = -1;
+					}
+					depth--;
+					if ("si".equals(reader.getLocalName())) {
+						byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+						dataOutput.write(bytes);
+						offset += bytes.length;
+						indexOutput.writeLong(offset);
+						count++;
+					}
+				}
+			}
+			reader.close();
+		} catch (XMLStreamException e) {
+			throw new IOException("Cannot read the shared strings table", e);
+		}
+	}
+
+	/**
+	 * @return The shared string at the given index
+	 */
+	synchronized String getString(int idx) {
+		if (idx < 0 || idx >= count) {
+			throw new IndexOutOfBoundsException("Shared string " + idx + " is out of range (0.." + (count - 1) + ")");
+		}
+		String value = cache.get(idx);
+		if (value == null) {
+			value = read(idx);
+			cache.put(idx, value);
+		}
+		return value;
+	}
+
+	private String read(int idx) {
+		try {
+			offsets.clear();
+			readFully(index, offsets, (long) idx * Long.BYTES);
+			long start = offsets.getLong(0);
+			int length = (int) (offsets.getLong(Long.BYTES) - start);
+			ByteBuffer bytes = ByteBuffer.allocate(length);
+			readFully(data, bytes, start);
+			return new String(bytes.array(), 0, length, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read shared string " + idx, e);
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0) {
+				throw new IOException("Unexpected end of " + channel);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		cache.clear();
+		try {
+			try {
+				index.close();
+			} finally {
+				data.close();
+			}
+		} finally {
+			try {
+				Files.deleteIfExists(indexFile.toPath());
+			} finally {
+				Files.deleteIfExists(dataFile.toPath());
+			}
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package xyz.deverse.importer.csv;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Workbook fully loaded in memory through the POI usermodel
+ */
+class DomWorkbookHandle implements WorkbookHandle {
+
+	private final Workbook workbook;
+
+	DomWorkbookHandle(Workbook workbook) {
+		this.workbook = workbook;
+	}
+
+	@Override
+	public List<String> getSheetNames() {
+		List<String> sheetNames = new ArrayList<>();
+		for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+			sheetNames.add(workbook.getSheetAt(i).getSheetName());
+		}
+		return sheetNames;
+	}
+
+	@Override
+	public Iterator<SheetRow> rowIterator(int sheetIndex) {
+		Sheet sheet = workbook.getSheetAt(sheetIndex);
+		String sheetName = sheet.getSheetName();
+		Iterator<Row> rows = sheet.rowIterator();
+		return new Iterator<SheetRow>() {
+			@Override
+			public boolean hasNext() {
+				return rows.hasNext();
+			}
+
+			@Override
+			public SheetRow next() {
+				return new DomSheetRow(rows.next(), sheetName, sheetIndex);
+			}
+		};
+	}
+
+	@Override
+	public int estimateRowCount(int sheetIndex) {
+		Sheet sheet = workbook.getSheetAt(sheetIndex);
+		return sheet.getPhysicalNumberOfRows() == 0 ? 0 : sheet.getLastRowNum() + 1;
+	}
+
+	/**
+	 * The workbook is fully loaded and only read
+	 */
+	@Override
+	public boolean supportsConcurrentSheets() {
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		workbook.close();
+	}
+
+	private static class DomSheetRow implements SheetRow {
+
+		private final Row row;
+		private final String sheetName;
+		private final int sheetIndex;
+
+		DomSheetRow(Row row, String sheetName, int sheetIndex) {
+			this.row = row;
+			this.sheetName = sheetName;
+			this.sheetIndex = sheetIndex;
+		}
+
+		@Override
+		public String getSheetName() {
+			return sheetName;
+		}
+
+		@Override
+		public int getSheetIndex() {
+			return sheetIndex;
+		}
+
+		@Override
+		public int getRowNum() {
+			return row.getRowNum();
+		}
+
+		@Override
+		public void setRowNum(int rowNum) {
+			row.setRowNum(rowNum);
+		}
+
+		@Override
+		public Iterator<SheetCell> cellIterator() {
+			Iterator<Cell> cells = row.cellIterator();
+			return new Iterator<SheetCell>() {
+				@Override
+				public boolean hasNext() {
+					return cells.hasNext();
+				}
+
+				@Override
+				public SheetCell next() {
+					return new DomSheetCell(cells.next());
+				}
+			};
+		}
+	}
+
+	private static class DomSheetCell implements SheetCell {
+
+		private final Cell cell;
+
+		DomSheetCell(Cell cell) {
+			this.cell = cell;
+		}
+
+		@Override
+		public int getColumnIndex() {
+			return cell.getColumnIndex();
+		}
+
+		@Override
+		public CellType getCellType() {
+			return cell.getCellType();
+		}
+
+		@Override
+		public String getStringCellValue() {
+			return cell.getStringCellValue();
+		}
+
+		@Override
+		public CellType getResultType() {
+			return cell.getCellType() == CellType.FORMULA ? cell.getCachedFormulaResultType() : cell.getCellType();
+		}
+
+		@Override
+		public double getNumericCellValue() {
+			return cell.getNumericCellValue();
+		}
+
+		@Override
+		public boolean getBooleanCellValue() {
+			return cell.getBooleanCellValue();
+		}
+
+		@Override
+		public Date getDateCellValue() {
+			return cell.getDateCellValue();
+		}
+
+		@Override
+		public LocalDateTime getLocalDateTimeCellValue() {
+			return cell.getLocalDateTimeCellValue();
+		}
+
+		@Override
+		public Object getCellValue(DataFormatter dataFormatter) {
+			Object cellValue;
+			try {
+				// do not evaluate formulas
+				cellValue = CellType.FORMULA == cell.getCellType() ? cell.getStringCellValue() : dataFormatter.formatCellValue(cell);
+			} catch (NumberFormatException | IllegalStateException ex) {
+				cellValue = cell.getNumericCellValue();
+			}
+			return cellValue;
+		}
+	}
+}
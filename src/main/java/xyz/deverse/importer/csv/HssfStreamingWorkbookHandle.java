@@ -0,0 +1,284 @@
+package xyz.deverse.importer.csv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DimensionsRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.ExtendedFormatRecord;
+import org.apache.poi.hssf.record.FilePassRecord;
+import org.apache.poi.hssf.record.FormatRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactory;
+import org.apache.poi.hssf.record.RecordFactoryInputStream;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaError;
+
+/**
+ * Legacy BIFF8 (.xls) workbook read with the POI event model. The records of a sheet are pulled one at a time
+ * and grouped into rows, so that only the current block of rows is held in memory. Each sheet is reached by seeking
+ * to the offset stored in its BOUNDSHEET record, without parsing the sheets before it.
+ */
+class HssfStreamingWorkbookHandle implements WorkbookHandle {
+
+	private final File file;
+	private final POIFSFileSystem fileSystem;
+	private final String workbookEntryName;
+	private final List<String> sheetNames = new ArrayList<>();
+	private final List<Integer> sheetOffsets = new ArrayList<>();
+	private final FormatTrackingHSSFListener formats = new FormatTrackingHSSFListener(record -> {});
+	private SSTRecord sharedStrings;
+
+	/**
+	 * @param file The workbook, which is deleted when the handle is closed
+	 */
+	HssfStreamingWorkbookHandle(File file) throws IOException {
+		this.file = file;
+		this.fileSystem = new POIFSFileSystem(file, true);
+		try {
+			this.workbookEntryName = HSSFWorkbook.getWorkbookDirEntryName(fileSystem.getRoot());
+			readWorkbookGlobals();
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	private void readWorkbookGlobals() throws IOException {
+		try (DocumentInputStream inputStream = fileSystem.createDocumentInputStream(workbookEntryName)) {
+			RecordFactoryInputStream records = new RecordFactoryInputStream(inputStream, false);
+			Record record;
+			while ((record = records.nextRecord()) != null && !(record instanceof EOFRecord)) {
+				if (record instanceof FilePassRecord) {
+					throw new EncryptedDocumentException("Encrypted workbooks cannot be read in streaming mode");
+				} else if (record instanceof BoundSheetRecord) {
+					BoundSheetRecord boundSheet = (BoundSheetRecord) record;
+					sheetNames.add(boundSheet.getSheetname());
+					sheetOffsets.add(boundSheet.getPositionOfBof());
+				} else if (record instanceof SSTRecord) {
+					sharedStrings = (SSTRecord) record;
+				} else if (record instanceof FormatRecord || record instanceof ExtendedFormatRecord) {
+					formats.processRecordInternally(record);
+				}
+			}
+		}
+	}
+
+	@Override
+	public List<String> getSheetNames() {
+		return sheetNames;
+	}
+
+	@Override
+	public Iterator<SheetRow> rowIterator(int sheetIndex) {
+		return new SheetRowIterator(sheetIndex);
+	}
+
+	/**
+	 * @return The last row of the DIMENSIONS record that precedes the cells of the sheet
+	 */
+	@Override
+	public int estimateRowCount(int sheetIndex) {
+		try (DocumentInputStream inputStream = fileSystem.createDocumentInputStream(workbookEntryName)) {
+			long offset = sheetOffsets.get(sheetIndex);
+			if (inputStream.skip(offset) != offset) {
+				return -1;
+			}
+			RecordFactoryInputStream records = new RecordFactoryInputStream(inputStream, false);
+			Record record;
+			while ((record = records.nextRecord()) != null && !(record instanceof EOFRecord)) {
+				if (record instanceof DimensionsRecord) {
+					return ((DimensionsRecord) record).getLastRow();
+				} else if (record instanceof RowRecord || record instanceof CellValueRecordInterface) {
+					return -1;
+				}
+			}
+			return -1;
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read the dimension of sheet " + sheetNames.get(sheetIndex), e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			fileSystem.close();
+		} finally {
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	private class SheetRowIterator implements Iterator<SheetRow>, Closeable {
+
+		private final String sheetName;
+		private final int sheetIndex;
+		private final DocumentInputStream inputStream;
+		private final RecordFactoryInputStream records;
+		private final Deque<StreamedSheetRow> rows = new ArrayDeque<>();
+		private final Deque<Integer> declaredRowNums = new ArrayDeque<>();
+		private StreamedSheetRow currentRow;
+		private FormulaRecord pendingStringFormula;
+		private int depth;
+		private boolean finished;
+		private boolean closed;
+
+		SheetRowIterator(int sheetIndex) {
+			this.sheetIndex = sheetIndex;
+			this.sheetName = sheetNames.get(sheetIndex);
+			try {
+				this.inputStream = fileSystem.createDocumentInputStream(workbookEntryName);
+				long offset = sheetOffsets.get(sheetIndex);
+				if (inputStream.skip(offset) != offset) {
+					throw new IOException("Sheet offset " + offset + " is beyond the end of the workbook");
+				}
+				this.records = new RecordFactoryInputStream(inputStream, false);
+			} catch (IOException e) {
+				throw new IllegalStateException("Cannot open sheet " + sheetName, e);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (rows.isEmpty() && !finished) {
+				readRecord();
+			}
+			if (rows.isEmpty()) {
+				close();
+			}
+			return !rows.isEmpty();
+		}
+
+		@Override
+		public SheetRow next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return rows.pollFirst();
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				inputStream.close();
+			}
+		}
+
+		private void readRecord() {
+			Record record = records.nextRecord();
+			if (record == null) {
+				finishSheet();
+			} else if (record instanceof BOFRecord) {
+				depth++;
+			} else if (record instanceof EOFRecord) {
+				if (--depth == 0) {
+					finishSheet();
+				}
+			} else if (depth > 1) {
+				// Embedded substream, such as a chart
+			} else if (record instanceof RowRecord) {
+				declaredRowNums.addLast(((RowRecord) record).getRowNumber());
+			} else if (record instanceof NumberRecord) {
+				NumberRecord number = (NumberRecord) record;
+				addCell(number.getRow(), StreamedSheetCell.ofNumber(number.getColumn(), number.getValue(), formats.getFormatIndex(number), formats.getFormatString(number)));
+			} else if (record instanceof LabelSSTRecord) {
+				LabelSSTRecord label = (LabelSSTRecord) record;
+				addCell(label.getRow(), StreamedSheetCell.ofString(label.getColumn(), sharedStrings.getString(label.getSSTIndex()).getString()));
+			} else if (record instanceof LabelRecord) {
+				LabelRecord label = (LabelRecord) record;
+				addCell(label.getRow(), StreamedSheetCell.ofString(label.getColumn(), label.getValue()));
+			} else if (record instanceof BoolErrRecord) {
+				BoolErrRecord boolErr = (BoolErrRecord) record;
+				addCell(boolErr.getRow(), boolErr.isBoolean()
+						? StreamedSheetCell.ofBoolean(boolErr.getColumn(), boolErr.getBooleanValue())
+						: StreamedSheetCell.ofError(boolErr.getColumn(), FormulaError.forInt(boolErr.getErrorValue()).getString()));
+			} else if (record instanceof BlankRecord) {
+				BlankRecord blank = (BlankRecord) record;
+				addCell(blank.getRow(), StreamedSheetCell.ofBlank(blank.getColumn()));
+			} else if (record instanceof MulBlankRecord) {
+				for (BlankRecord blank : RecordFactory.convertBlankRecords((MulBlankRecord) record)) {
+					addCell(blank.getRow(), StreamedSheetCell.ofBlank(blank.getColumn()));
+				}
+			} else if (record instanceof FormulaRecord) {
+				addFormulaCell((FormulaRecord) record);
+			} else if (record instanceof StringRecord && pendingStringFormula != null) {
+				// The cached string result of a formula comes in the record following it
+				FormulaRecord formula = pendingStringFormula;
+				pendingStringFormula = null;
+				addCell(formula.getRow(), StreamedSheetCell.ofFormula(StreamedSheetCell.ofString(formula.getColumn(), ((StringRecord) record).getString())));
+			}
+		}
+
+		private void addFormulaCell(FormulaRecord formula) {
+			CellType resultType = formula.getCachedResultTypeEnum();
+			StreamedSheetCell result;
+			if (resultType == CellType.STRING) {
+				pendingStringFormula = formula;
+				return;
+			} else if (resultType == CellType.BOOLEAN) {
+				result = StreamedSheetCell.ofBoolean(formula.getColumn(), formula.getCachedBooleanValue());
+			} else if (resultType == CellType.ERROR) {
+				result = StreamedSheetCell.ofError(formula.getColumn(), FormulaError.forInt(formula.getCachedErrorValue()).getString());
+			} else {
+				result = StreamedSheetCell.ofNumber(formula.getColumn(), formula.getValue(), formats.getFormatIndex(formula), formats.getFormatString(formula));
+			}
+			addCell(formula.getRow(), StreamedSheetCell.ofFormula(result));
+		}
+
+		private void addCell(int rowNum, StreamedSheetCell cell) {
+			if (currentRow == null || currentRow.getRowNum() != rowNum) {
+				flushCurrentRow();
+				// Rows declared without any cell come before the row of this cell
+				while (!declaredRowNums.isEmpty() && declaredRowNums.peekFirst() <= rowNum) {
+					int declaredRowNum = declaredRowNums.pollFirst();
+					if (declaredRowNum < rowNum) {
+						rows.addLast(new StreamedSheetRow(sheetName, sheetIndex, declaredRowNum));
+					}
+				}
+				currentRow = new StreamedSheetRow(sheetName, sheetIndex, rowNum);
+			}
+			currentRow.addCell(cell);
+		}
+
+		private void flushCurrentRow() {
+			if (currentRow != null) {
+				rows.addLast(currentRow);
+				currentRow = null;
+			}
+		}
+
+		private void finishSheet() {
+			flushCurrentRow();
+			while (!declaredRowNums.isEmpty()) {
+				rows.addLast(new StreamedSheetRow(sheetName, sheetIndex, declaredRowNums.pollFirst()));
+			}
+			finished = true;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package xyz.deverse.importer.csv;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admits workbooks while the heap estimated for the open ones fits in a memory budget. A workbook requested in
+ * {@link CsvFileReader.ReadMode#DOM} mode that does not fit in the memory left is read in
+ * {@link CsvFileReader.ReadMode#STREAMING} mode if it can be streamed. Otherwise the import waits for memory to be
+ * released, up to the given time, and is rejected if the workbook does not fit in the whole budget or the wait times
+ * out.
+ * <p>
+ * The same instance is meant to be shared by the readers of all the imports
+ */
+public class MemoryBudgetAdmissionPolicy implements AdmissionPolicy {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MemoryBudgetAdmissionPolicy.class);
+
+	private final long budget;
+
+	private final long maxWaitMillis;
+
+	private long reserved;
+
+	/**
+	 * @param budget The heap shared by the open workbooks, in bytes
+	 * @param maxWait The longest an import waits for memory to be released
+	 */
+	public MemoryBudgetAdmissionPolicy(long budget, Duration maxWait) {
+		this.budget = budget;
+		this.maxWaitMillis = maxWait.toMillis();
+	}
+
+	@Override
+	public synchronized Admission admit(WorkbookEstimate estimate, CsvFileReader.ReadMode readMode) {
+		CsvFileReader.ReadMode admittedMode = readMode;
+		long heap = Math.max(0, estimate.getHeap(readMode));
+		long streamingHeap = estimate.getStreamingHeap();
+		if (readMode == CsvFileReader.ReadMode.DOM && streamingHeap >= 0 && heap > budget - reserved) {
+			LOGGER.info("Reading " + estimate.getFilename() + " in streaming mode, as " + heap + " bytes are needed in DOM mode");
+			admittedMode = CsvFileReader.ReadMode.STREAMING;
+			heap = streamingHeap;
+		}
+		if (heap > budget) {
+			throw new RejectedExecutionException("Reading " + estimate.getFilename() + " needs " + heap + " bytes, beyond the memory budget of " + budget + " bytes");
+		}
+		long deadline = System.currentTimeMillis() + maxWaitMillis;
+		while (heap > budget - reserved) {
+			long timeLeft = deadline - System.currentTimeMillis();
+			if (timeLeft <= 0) {
+				throw new RejectedExecutionException("Reading " + estimate.getFilename() + " needs " + heap + " bytes, not released within " + maxWaitMillis + " ms");
+			}
+			try {
+				wait(timeLeft);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException("Interrupted while waiting to read " + estimate.getFilename(), e);
+			}
+		}
+		reserved += heap;
+		long admittedHeap = heap;
+		return new Admission(admittedMode, () -> release(admittedHeap));
+	}
+
+	/**
+	 * @return The heap reserved for the open workbooks, in bytes
+	 */
+	public synchronized long getReserved() {
+		return reserved;
+	}
+
+	private synchronized void release(long heap) {
+		reserved -= heap;
+		notifyAll();
+	}
+}
@@ -0,0 +1,175 @@
+package xyz.deverse.importer.csv;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import xyz.deverse.importer.ImportLine;
+
+/**
+ * Iterates the lines of the rows of a workbook, bound in chunks on worker threads ahead of the reader. Rows are read
+ * on the reading thread and a chunk never spans two sheets. Lines are delivered in row order, with a bounded number of
+ * chunks held in memory. Once a row ends its sheet, the lines of the following rows of that sheet are discarded.
+ */
+class ParallelRowIterator implements Iterator<ImportLine> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParallelRowIterator.class);
+
+	private static final int CHUNK_SIZE = 256;
+
+	/**
+	 * Binds the rows of a chunk
+	 */
+	interface ChunkParser {
+
+		/**
+		 * Prepare the parsing of consecutive rows of a sheet, on the reading thread
+		 *
+		 * @param sheetEnd To call when a row ends the sheet
+		 * @return The parsing of the rows, up to the row ending the sheet if any, run on a worker thread
+		 */
+		Supplier<List<ImportLine>> prepare(List<SheetRow> rows, Runnable sheetEnd);
+	}
+
+	private static class Chunk {
+
+		private final int sheetIndex;
+		private volatile boolean sheetEnded;
+		private CompletableFuture<List<ImportLine>> lines;
+
+		private Chunk(int sheetIndex) {
+			this.sheetIndex = sheetIndex;
+		}
+	}
+
+	private final WorkbookRowIterator rows;
+	private final Predicate<SheetRow> headerRows;
+	private final Function<SheetRow, ImportLine> headerParser;
+	private final ChunkParser chunkParser;
+	private final int parallelism;
+	private final Deque<Chunk> pendingChunks = new ArrayDeque<>();
+	private SheetRow nextRow;
+	private int endedSheet = -1;
+	private Iterator<ImportLine> lines = Collections.emptyIterator();
+	private boolean closed;
+
+	/**
+	 * @param headerRows Tells whether a row is a header row. Header rows are parsed on the reading thread before the
+	 * following rows are submitted, as the binding of the rows of a sheet depends on its header
+	 * @param parallelism The number of chunks parsed at the same time
+	 */
+	ParallelRowIterator(WorkbookRowIterator rows, Predicate<SheetRow> headerRows, Function<SheetRow, ImportLine> headerParser, ChunkParser chunkParser, int parallelism) {
+		this.rows = rows;
+		this.headerRows = headerRows;
+		this.headerParser = headerParser;
+		this.chunkParser = chunkParser;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!lines.hasNext() && !closed) {
+			fillPendingChunks();
+			if (pendingChunks.isEmpty()) {
+				close();
+			} else {
+				Chunk chunk = pendingChunks.pollFirst();
+				List<ImportLine> chunkLines = join(chunk);
+				if (chunk.sheetIndex != endedSheet) {
+					if (chunk.sheetEnded) {
+						endedSheet = chunk.sheetIndex;
+						rows.skipSheet(chunk.sheetIndex);
+					}
+					lines = chunkLines.iterator();
+				}
+			}
+		}
+		return lines.hasNext();
+	}
+
+	@Override
+	public ImportLine next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return lines.next();
+	}
+
+	/**
+	 * Wait for the chunks being parsed and close the workbook
+	 */
+	void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		lines = Collections.emptyIterator();
+		for (Chunk chunk : pendingChunks) {
+			try {
+				chunk.lines.join();
+			} catch (RuntimeException e) {
+				LOGGER.debug("Chunk parsed while closing failed", e);
+			}
+		}
+		pendingChunks.clear();
+		rows.close();
+	}
+
+	private void fillPendingChunks() {
+		while (pendingChunks.size() < parallelism) {
+			SheetRow row = nextRow();
+			if (row == null) {
+				return;
+			}
+			Chunk chunk = new Chunk(row.getSheetIndex());
+			if (headerRows.test(row)) {
+				chunk.lines = CompletableFuture.completedFuture(Collections.singletonList(headerParser.apply(row)));
+			} else {
+				List<SheetRow> chunkRows = new ArrayList<>(CHUNK_SIZE);
+				chunkRows.add(row);
+				while (chunkRows.size() < CHUNK_SIZE && (row = nextRow()) != null) {
+					if (row.getSheetIndex() != chunk.sheetIndex || headerRows.test(row)) {
+						nextRow = row;
+						break;
+					}
+					chunkRows.add(row);
+				}
+				chunk.lines = CompletableFuture.supplyAsync(chunkParser.prepare(chunkRows, () -> chunk.sheetEnded = true));
+			}
+			pendingChunks.addLast(chunk);
+		}
+	}
+
+	private SheetRow nextRow() {
+		SheetRow row = nextRow;
+		nextRow = null;
+		while (row == null || row.getSheetIndex() == endedSheet) {
+			if (!rows.hasNext()) {
+				return null;
+			}
+			row = rows.next();
+		}
+		return row;
+	}
+
+	private List<ImportLine> join(Chunk chunk) {
+		try {
+			return chunk.lines.join();
+		} catch (CompletionException e) {
+			close();
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+		}
+	}
+}
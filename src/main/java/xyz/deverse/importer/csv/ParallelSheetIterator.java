@@ -0,0 +1,206 @@
+package xyz.deverse.importer.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import xyz.deverse.importer.ImportLine;
+
+/**
+ * Iterates the lines of the selected sheets of a workbook, the sheets being parsed in parallel ahead of the reader.
+ * Lines are delivered in sheet order, with a bounded number of parsed sheets held in memory. The workbook is closed as
+ * soon as the last line has been read.
+ * <p>
+ * As the number of rows of the previous sheets is only known once they are read, the lines of a sheet are placed at
+ * their index when they are delivered.
+ */
+class ParallelSheetIterator implements Iterator<ImportLine> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParallelSheetIterator.class);
+
+	/**
+	 * Parses the rows of a sheet, on a worker thread
+	 */
+	interface SheetParser {
+
+		/**
+		 * @param rows The selected rows of the sheet, which end early once the iterator is closed
+		 * @return The lines of the rows, given the number of selected rows of the previous sheets
+		 */
+		List<IntFunction<ImportLine>> parse(int sheetIndex, Iterator<SheetRow> rows);
+	}
+
+	private static class ParsedSheet {
+
+		private final List<IntFunction<ImportLine>> lines;
+		private final int rowCount;
+
+		private ParsedSheet(List<IntFunction<ImportLine>> lines, int rowCount) {
+			this.lines = lines;
+			this.rowCount = rowCount;
+		}
+	}
+
+	private final WorkbookHandle workbook;
+	private final int[] sheetIndexes;
+	private final Predicate<SheetRow> rowFilter;
+	private final SheetParser sheetParser;
+	private final int parallelism;
+	private final Deque<CompletableFuture<ParsedSheet>> pendingSheets = new ArrayDeque<>();
+	private int nextSheet;
+	private int rowOffset;
+	private Iterator<IntFunction<ImportLine>> lines = Collections.emptyIterator();
+	private int linesOffset;
+	private volatile boolean closed;
+
+	/**
+	 * @param sheetIndexes The sheets to read, in order
+	 * @param rowFilter Tells whether a row of a sheet being read is parsed
+	 * @param parallelism The number of sheets parsed at the same time
+	 */
+	ParallelSheetIterator(WorkbookHandle workbook, int[] sheetIndexes, Predicate<SheetRow> rowFilter, SheetParser sheetParser, int parallelism) {
+		this.workbook = workbook;
+		this.sheetIndexes = sheetIndexes;
+		this.rowFilter = rowFilter;
+		this.sheetParser = sheetParser;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!lines.hasNext() && !closed) {
+			fillPendingSheets();
+			if (pendingSheets.isEmpty()) {
+				close();
+			} else {
+				ParsedSheet sheet = join(pendingSheets.pollFirst());
+				lines = sheet.lines.iterator();
+				linesOffset = rowOffset;
+				rowOffset += sheet.rowCount;
+			}
+		}
+		return lines.hasNext();
+	}
+
+	@Override
+	public ImportLine next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return lines.next().apply(linesOffset);
+	}
+
+	/**
+	 * Stop the sheets being parsed and close the workbook
+	 */
+	void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		lines = Collections.emptyIterator();
+		// The sheets being parsed stop at their next row, and must be done with the workbook before it is closed
+		for (CompletableFuture<ParsedSheet> sheet : pendingSheets) {
+			try {
+				sheet.join();
+			} catch (RuntimeException e) {
+				LOGGER.debug("Sheet parsed while closing failed", e);
+			}
+		}
+		pendingSheets.clear();
+		try {
+			workbook.close();
+		} catch (IOException e) {
+			LOGGER.warn("Cannot close workbook", e);
+		}
+	}
+
+	private void fillPendingSheets() {
+		while (pendingSheets.size() < parallelism && nextSheet < sheetIndexes.length) {
+			int sheetIndex = sheetIndexes[nextSheet++];
+			boolean lastSheet = nextSheet == sheetIndexes.length;
+			pendingSheets.addLast(CompletableFuture.supplyAsync(() -> parseSheet(sheetIndex, lastSheet)));
+		}
+	}
+
+	private ParsedSheet join(CompletableFuture<ParsedSheet> sheet) {
+		try {
+			return sheet.join();
+		} catch (CompletionException e) {
+			close();
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+		}
+	}
+
+	/**
+	 * The rows left once the parser is done are counted, unless the sheet is the last one
+	 */
+	private ParsedSheet parseSheet(int sheetIndex, boolean lastSheet) {
+		if (closed) {
+			return new ParsedSheet(Collections.emptyList(), 0);
+		}
+		Iterator<SheetRow> rows = workbook.rowIterator(sheetIndex);
+		try {
+			SelectedRows selectedRows = new SelectedRows(rows);
+			List<IntFunction<ImportLine>> lines = sheetParser.parse(sheetIndex, selectedRows);
+			while (!lastSheet && selectedRows.hasNext()) {
+				selectedRows.next();
+			}
+			return new ParsedSheet(lines, selectedRows.count);
+		} finally {
+			if (rows instanceof Closeable) {
+				try {
+					((Closeable) rows).close();
+				} catch (IOException | UncheckedIOException e) {
+					LOGGER.warn("Cannot close sheet " + sheetIndex, e);
+				}
+			}
+		}
+	}
+
+	private class SelectedRows implements Iterator<SheetRow> {
+
+		private final Iterator<SheetRow> rows;
+		private SheetRow next;
+		private int count;
+
+		SelectedRows(Iterator<SheetRow> rows) {
+			this.rows = rows;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null && !closed && rows.hasNext()) {
+				SheetRow row = rows.next();
+				if (rowFilter.test(row)) {
+					count++;
+					next = row;
+				}
+			}
+			return next != null && !closed;
+		}
+
+		@Override
+		public SheetRow next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			SheetRow row = next;
+			next = null;
+			return row;
+		}
+	}
+}
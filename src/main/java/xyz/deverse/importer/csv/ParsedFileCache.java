@@ -0,0 +1,140 @@
+package xyz.deverse.importer.csv;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.SAXException;
+
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Cache of the rows of parsed workbooks, keyed by a hash of their content, so that a file uploaded again is replayed
+ * without being parsed. Each entry is a directory of the cache, holding the sheets of the workbook read so far in the
+ * format of {@link CachedWorkbookHandle}. The least recently used entries are deleted once their total size exceeds
+ * the quota.
+ * <p>
+ * The same instance may be shared by the readers of all the imports
+ */
+public class ParsedFileCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParsedFileCache.class);
+
+	private final Path directory;
+
+	private final long quota;
+
+	/**
+	 * @param directory The directory of the entries, created if missing
+	 * @param quota The total size of the entries, in bytes
+	 */
+	public ParsedFileCache(Path directory, long quota) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.quota = quota;
+	}
+
+	/**
+	 * @param variant Distinguishes the entries of the same content parsed differently, such as with another engine
+	 * @return The key of the entry of the file
+	 */
+	public String keyOf(MultipartFile file, String variant) throws IOException {
+		try (HashingInputStream inputStream = new HashingInputStream(Hashing.sha256(), file.getInputStream())) {
+			ByteStreams.exhaust(inputStream);
+			return inputStream.hash() + "-" + variant;
+		}
+	}
+
+	/**
+	 * @param source Opens the workbook, if a sheet it reads is missing from the entry
+	 * @return The workbook of the entry of the key, to which the sheets read from the source are added
+	 */
+	WorkbookHandle open(String key, CachedWorkbookHandle.Source source) throws IOException, OpenXML4JException, SAXException {
+		Path entry = directory.resolve(key);
+		try {
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (NoSuchFileException e) {
+			// A new entry
+		}
+		return new CachedWorkbookHandle(entry, source, () -> evict(entry));
+	}
+
+	/**
+	 * Delete the least recently used entries until the total size fits in the quota. An entry larger than the whole
+	 * quota only serves the read that wrote it
+	 *
+	 * @param entry The entry just written to, deleted last
+	 */
+	private synchronized void evict(Path entry) {
+		List<Path> entries;
+		try (Stream<Path> files = Files.list(directory)) {
+			entries = files.filter(file -> Files.isDirectory(file) && !file.equals(entry))
+					.sorted(Comparator.comparing(ParsedFileCache::lastModified))
+					.collect(Collectors.toCollection(ArrayList::new));
+		} catch (IOException e) {
+			LOGGER.warn("Cannot list the entries of " + directory, e);
+			return;
+		}
+		entries.add(entry);
+		long size = 0;
+		for (Path file : entries) {
+			size += sizeOf(file);
+		}
+		for (Path file : entries) {
+			if (size <= quota) {
+				break;
+			}
+			long entrySize = sizeOf(file);
+			if (file.equals(entry)) {
+				LOGGER.info("Not caching " + entry + ", as its " + entrySize + " bytes exceed the quota of " + quota + " bytes");
+			}
+			delete(file);
+			size -= entrySize;
+		}
+	}
+
+	private static void delete(Path entry) {
+		try (Stream<Path> files = Files.list(entry)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.deleteIfExists(file);
+			}
+			Files.deleteIfExists(entry);
+		} catch (IOException e) {
+			LOGGER.warn("Cannot delete the cache entry " + entry, e);
+		}
+	}
+
+	private static long sizeOf(Path entry) {
+		try (Stream<Path> files = Files.list(entry)) {
+			return files.mapToLong(file -> {
+				try {
+					return Files.size(file);
+				} catch (IOException e) {
+					return 0;
+				}
+			}).sum();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static long lastModified(Path file) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis();
+		} catch (IOException e) {
+			return Long.MIN_VALUE;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package xyz.deverse.importer.csv;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+
+/**
+ * A cell of a {@link SheetRow}
+ */
+public interface SheetCell {
+
+	int getColumnIndex();
+
+	CellType getCellType();
+
+	/**
+	 * @return The text of a string cell, failing with an {@link IllegalStateException} for other cell types
+	 */
+	String getStringCellValue();
+
+	/**
+	 * @return The type of the cell, or the type of the cached result for formula cells
+	 */
+	CellType getResultType();
+
+	/**
+	 * @return The value of a numeric cell, failing with an {@link IllegalStateException} for other cell types
+	 */
+	double getNumericCellValue();
+
+	/**
+	 * @return The value of a boolean cell, failing with an {@link IllegalStateException} for other cell types
+	 */
+	boolean getBooleanCellValue();
+
+	/**
+	 * @return The value of a numeric cell read as an Excel date, failing with an {@link IllegalStateException} for
+	 * other cell types
+	 */
+	Date getDateCellValue();
+
+	/**
+	 * @return The value of a numeric cell read as an Excel date, failing with an {@link IllegalStateException} for
+	 * other cell types
+	 */
+	LocalDateTime getLocalDateTimeCellValue();
+
+	/**
+	 * @param dataFormatter The formatter used to render the cell as it is displayed
+	 * @return The formatted value of the cell. Formulas are not evaluated: their cached result is returned instead
+	 */
+	Object getCellValue(DataFormatter dataFormatter);
+}
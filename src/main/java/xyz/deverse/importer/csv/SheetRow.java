@@ -0,0 +1,19 @@
+package xyz.deverse.importer.csv;
+
+import java.util.Iterator;
+
+/**
+ * A row of a workbook sheet, independent of the engine used to read the workbook
+ */
+public interface SheetRow {
+
+	String getSheetName();
+
+	int getSheetIndex();
+
+	int getRowNum();
+
+	void setRowNum(int rowNum);
+
+	Iterator<SheetCell> cellIterator();
+}
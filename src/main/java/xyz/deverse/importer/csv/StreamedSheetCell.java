@@ -0,0 +1,135 @@
+package xyz.deverse.importer.csv;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+/**
+ * Cell produced by a streaming engine. Numbers read as text are only parsed, and values only formatted, when requested
+ */
+class StreamedSheetCell implements SheetCell {
+
+	private final int columnIndex;
+	private final CellType cellType;
+	private final CellType resultType;
+	private final String text;
+	private double number = Double.NaN;
+	private final int formatIndex;
+	private final String formatString;
+
+	private StreamedSheetCell(int columnIndex, CellType cellType, CellType resultType, String text, double number, int formatIndex, String formatString) {
+		this.columnIndex = columnIndex;
+		this.cellType = cellType;
+		this.resultType = resultType;
+		this.text = text;
+		this.number = number;
+		this.formatIndex = formatIndex;
+		this.formatString = formatString;
+	}
+
+	static StreamedSheetCell ofString(int columnIndex, String text) {
+		return new StreamedSheetCell(columnIndex, CellType.STRING, CellType.STRING, text, Double.NaN, 0, null);
+	}
+
+	static StreamedSheetCell ofNumber(int columnIndex, String text, int formatIndex, String formatString) {
+		return new StreamedSheetCell(columnIndex, CellType.NUMERIC, CellType.NUMERIC, text, Double.NaN, formatIndex, formatString);
+	}
+
+	static StreamedSheetCell ofNumber(int columnIndex, double number, int formatIndex, String formatString) {
+		return new StreamedSheetCell(columnIndex, CellType.NUMERIC, CellType.NUMERIC, null, number, formatIndex, formatString);
+	}
+
+	static StreamedSheetCell ofBoolean(int columnIndex, boolean value) {
+		return new StreamedSheetCell(columnIndex, CellType.BOOLEAN, CellType.BOOLEAN, value ? "TRUE" : "FALSE", Double.NaN, 0, null);
+	}
+
+	static StreamedSheetCell ofError(int columnIndex, String text) {
+		return new StreamedSheetCell(columnIndex, CellType.ERROR, CellType.ERROR, text, Double.NaN, 0, null);
+	}
+
+	static StreamedSheetCell ofBlank(int columnIndex) {
+		return new StreamedSheetCell(columnIndex, CellType.BLANK, CellType.BLANK, "", Double.NaN, 0, null);
+	}
+
+	/**
+	 * @param result The cached result of the formula
+	 */
+	static StreamedSheetCell ofFormula(StreamedSheetCell result) {
+		return new StreamedSheetCell(result.columnIndex, CellType.FORMULA, result.resultType, result.text, result.number, result.formatIndex, result.formatString);
+	}
+
+	@Override
+	public int getColumnIndex() {
+		return columnIndex;
+	}
+
+	@Override
+	public CellType getCellType() {
+		return cellType;
+	}
+
+	@Override
+	public String getStringCellValue() {
+		if (resultType == CellType.STRING || resultType == CellType.BLANK) {
+			return text;
+		}
+		throw new IllegalStateException("Cannot get a STRING value from a " + resultType + " cell");
+	}
+
+	@Override
+	public CellType getResultType() {
+		return resultType;
+	}
+
+	@Override
+	public double getNumericCellValue() {
+		checkResultType(CellType.NUMERIC);
+		return getNumber();
+	}
+
+	@Override
+	public boolean getBooleanCellValue() {
+		checkResultType(CellType.BOOLEAN);
+		return Boolean.parseBoolean(text);
+	}
+
+	@Override
+	public Date getDateCellValue() {
+		checkResultType(CellType.NUMERIC);
+		return DateUtil.getJavaDate(getNumber());
+	}
+
+	@Override
+	public LocalDateTime getLocalDateTimeCellValue() {
+		checkResultType(CellType.NUMERIC);
+		return DateUtil.getLocalDateTime(getNumber());
+	}
+
+	private void checkResultType(CellType expectedType) {
+		if (resultType != expectedType) {
+			throw new IllegalStateException("Cannot get a " + expectedType + " value from a " + resultType + " cell");
+		}
+	}
+
+	@Override
+	public Object getCellValue(DataFormatter dataFormatter) {
+		if (resultType != CellType.NUMERIC) {
+			return text;
+		}
+		if (cellType == CellType.FORMULA) {
+			// do not evaluate formulas
+			return getNumber();
+		}
+		return dataFormatter.formatRawCellContents(getNumber(), formatIndex, formatString);
+	}
+
+	private double getNumber() {
+		if (Double.isNaN(number) && text != null) {
+			number = Double.parseDouble(text);
+		}
+		return number;
+	}
+}
@@ -0,0 +1,51 @@
+package xyz.deverse.importer.csv;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Row produced by a streaming engine: only the cells of this row are held in memory
+ */
+class StreamedSheetRow implements SheetRow {
+
+	private final String sheetName;
+	private final int sheetIndex;
+	private int rowNum;
+	private final List<SheetCell> cells = new ArrayList<>();
+
+	StreamedSheetRow(String sheetName, int sheetIndex, int rowNum) {
+		this.sheetName = sheetName;
+		this.sheetIndex = sheetIndex;
+		this.rowNum = rowNum;
+	}
+
+	void addCell(SheetCell cell) {
+		cells.add(cell);
+	}
+
+	@Override
+	public String getSheetName() {
+		return sheetName;
+	}
+
+	@Override
+	public int getSheetIndex() {
+		return sheetIndex;
+	}
+
+	@Override
+	public int getRowNum() {
+		return rowNum;
+	}
+
+	@Override
+	public void setRowNum(int rowNum) {
+		this.rowNum = rowNum;
+	}
+
+	@Override
+	public Iterator<SheetCell> cellIterator() {
+		return cells.iterator();
+	}
+}
@@ -0,0 +1,34 @@
+package xyz.deverse.importer.csv;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Canonical instances of the values of a column, so that the equal values of its lines share one instance. The
+ * dictionary is bounded: once it holds its capacity of distinct values, values not in it are returned as they are
+ */
+final class ValueDictionary {
+
+	private final int capacity;
+
+	private final ConcurrentMap<String, String> values = new ConcurrentHashMap<>();
+
+	ValueDictionary(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @return The instance equal to the value held by the dictionary, or the value itself
+	 */
+	String intern(String value) {
+		String canonicalValue = values.get(value);
+		if (canonicalValue != null) {
+			return canonicalValue;
+		}
+		if (values.size() >= capacity) {
+			return value;
+		}
+		canonicalValue = values.putIfAbsent(value, value);
+		return canonicalValue == null ? value : canonicalValue;
+	}
+}
@@ -0,0 +1,51 @@
+package xyz.deverse.importer.csv;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Size of a workbook and heap needed to read it, estimated from the file before it is opened. The heap figures are
+ * rough upper bounds, meant to compare uploads and to share a memory budget between concurrent imports
+ */
+@Builder
+@Value
+public class WorkbookEstimate {
+
+	String filename;
+
+	long fileSize;
+
+	/**
+	 * The total uncompressed size of the entries of an XLSX file, or the file size for other formats
+	 */
+	long uncompressedSize;
+
+	/**
+	 * The number of cells of the sheets, from their dimensions, or -1 if unknown
+	 */
+	long cellCount;
+
+	/**
+	 * The number of unique shared strings of an XLSX file, or -1 if unknown
+	 */
+	long sharedStringCount;
+
+	/**
+	 * The heap needed to read the file in {@link CsvFileReader.ReadMode#DOM} mode, or -1 if the file cannot be read in
+	 * that mode
+	 */
+	long domHeap;
+
+	/**
+	 * The heap needed to read the file in {@link CsvFileReader.ReadMode#STREAMING} or
+	 * {@link CsvFileReader.ReadMode#DELIMITED_TEXT} mode, or -1 if the file cannot be streamed
+	 */
+	long streamingHeap;
+
+	/**
+	 * @return The heap needed to read the file in the given mode, or -1 if the file cannot be read in that mode
+	 */
+	public long getHeap(CsvFileReader.ReadMode readMode) {
+		return readMode == CsvFileReader.ReadMode.DOM ? domHeap : streamingHeap;
+	}
+}
@@ -0,0 +1,277 @@
+package xyz.deverse.importer.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.XMLHelper;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Estimates of the heap needed to read a file with each engine. XLSX files are not parsed: the sizes of the entries
+ * are read from the central directory of the archive, the parts of the workbook are found from its relationships, and
+ * only the head of the shared strings table and of each sheet is inflated, for the string count and the sheet
+ * dimensions.
+ * <p>
+ * The factors are rough figures of the POI usermodel and of the streaming engines of this package
+ */
+final class WorkbookEstimator {
+
+	/**
+	 * Heap of the XSSF usermodel per byte of sheet and shared strings XML
+	 */
+	private static final long XSSF_DOM_BYTES_PER_XML_BYTE = 8;
+
+	/**
+	 * Heap of the XSSF usermodel per cell, when the sheet dimensions are known
+	 */
+	private static final long XSSF_DOM_BYTES_PER_CELL = 600;
+
+	/**
+	 * Heap of the HSSF usermodel per byte of file
+	 */
+	private static final long HSSF_DOM_BYTES_PER_FILE_BYTE = 6;
+
+	/**
+	 * Heap of a shared string held in memory, besides its characters
+	 */
+	private static final long BYTES_PER_SHARED_STRING = 64;
+
+	/**
+	 * Heap of a streaming engine besides its shared strings: current row, buffers and styles
+	 */
+	private static final long STREAMING_BASE_BYTES = 8L << 20;
+
+	private static final String WORKBOOK_PART = "xl/workbook.xml";
+
+	private static final String OFFICE_DOCUMENT_RELATIONSHIP = "/officeDocument";
+
+	private static final String WORKSHEET_RELATIONSHIP = "/worksheet";
+
+	private static final String SHARED_STRINGS_RELATIONSHIP = "/sharedStrings";
+
+	private WorkbookEstimator() {
+	}
+
+	/**
+	 * @param sharedStringsCacheSize The number of shared strings kept in memory by the XLSX streaming engine when the
+	 * table is stored on disk, or 0 if the whole table is held in memory
+	 */
+	static WorkbookEstimate estimateWorkbook(MultipartFile file, FileMagic fileMagic, int sharedStringsCacheSize) throws IOException {
+		if (FileMagic.OOXML == fileMagic) {
+			return estimateXlsx(file, sharedStringsCacheSize);
+		}
+		long fileSize = file.getSize();
+		return WorkbookEstimate.builder()
+				.filename(file.getOriginalFilename())
+				.fileSize(fileSize)
+				.uncompressedSize(fileSize)
+				.cellCount(-1)
+				.sharedStringCount(-1)
+				.domHeap(fileSize * HSSF_DOM_BYTES_PER_FILE_BYTE)
+				// The XLS streaming engine holds the shared strings table, at most the size of the file
+				.streamingHeap(FileMagic.OLE2 == fileMagic ? STREAMING_BASE_BYTES + 2 * fileSize : -1)
+				.build();
+	}
+
+	/**
+	 * @param parallelism The number of blocks parsed at the same time
+	 */
+	static WorkbookEstimate estimateDelimitedText(MultipartFile file, int parallelism, int blockSize) {
+		long fileSize = file.getSize();
+		// Each block in flight is held as bytes and as the strings of its cells
+		long blocksHeap = Math.min(fileSize, (long) parallelism * blockSize) * 3;
+		return WorkbookEstimate.builder()
+				.filename(file.getOriginalFilename())
+				.fileSize(fileSize)
+				.uncompressedSize(fileSize)
+				.cellCount(-1)
+				.sharedStringCount(-1)
+				.domHeap(-1)
+				.streamingHeap(STREAMING_BASE_BYTES + blocksHeap)
+				.build();
+	}
+
+	private static WorkbookEstimate estimateXlsx(MultipartFile file, int sharedStringsCacheSize) throws IOException {
+		// The central directory is at the end of the archive, so the upload is copied to a file to be read from there
+		Path zipFile = Files.createTempFile("importer-", ".tmp");
+		try {
+			try (InputStream inputStream = file.getInputStream()) {
+				Files.copy(inputStream, zipFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+			return estimateXlsx(file, zipFile.toFile(), sharedStringsCacheSize);
+		} finally {
+			Files.deleteIfExists(zipFile);
+		}
+	}
+
+	/**
+	 * @param zipFile The copy of the uploaded XLSX file, left to the caller
+	 */
+	static WorkbookEstimate estimateXlsx(MultipartFile file, File zipFile, int sharedStringsCacheSize) throws IOException {
+		XMLInputFactory xmlInputFactory = XMLHelper.newXMLInputFactory();
+		long uncompressedSize = 0;
+		long xmlSize = 0;
+		long sharedStringsSize = 0;
+		long sharedStringCount = -1;
+		long cellCount = 0;
+		boolean dimensionsKnown = true;
+		try (ZipFile zip = new ZipFile(zipFile)) {
+			Map<String, List<String>> packageParts = readRelationships(xmlInputFactory, zip, "");
+			String workbookPart = packageParts.getOrDefault(OFFICE_DOCUMENT_RELATIONSHIP, Collections.singletonList(WORKBOOK_PART)).get(0);
+			Map<String, List<String>> workbookParts = readRelationships(xmlInputFactory, zip, workbookPart);
+			Set<String> sheetParts = new HashSet<>(workbookParts.getOrDefault(WORKSHEET_RELATIONSHIP, Collections.emptyList()));
+			Set<String> sharedStringsParts = new HashSet<>(workbookParts.getOrDefault(SHARED_STRINGS_RELATIONSHIP, Collections.emptyList()));
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				String name = entry.getName();
+				long size = Math.max(0, entry.getSize());
+				uncompressedSize += size;
+				if (sharedStringsParts.contains(name)) {
+					sharedStringsSize = size;
+					xmlSize += size;
+					try (InputStream entryStream = zip.getInputStream(entry)) {
+						sharedStringCount = readSharedStringCount(xmlInputFactory, entryStream);
+					}
+				} else if (sheetParts.contains(name)) {
+					xmlSize += size;
+					try (InputStream entryStream = zip.getInputStream(entry)) {
+						long sheetCellCount = readCellCount(xmlInputFactory, entryStream);
+						dimensionsKnown &= sheetCellCount >= 0;
+						cellCount += Math.max(0, sheetCellCount);
+					}
+				}
+			}
+		}
+		long domHeap = xmlSize * XSSF_DOM_BYTES_PER_XML_BYTE;
+		if (dimensionsKnown) {
+			domHeap = Math.max(domHeap, cellCount * XSSF_DOM_BYTES_PER_CELL);
+		}
+		long stringCount = Math.max(0, sharedStringCount);
+		// Strings are held as UTF-16, about twice their size in the XML
+		long sharedStringsHeap = sharedStringsCacheSize > 0
+				? Math.min(stringCount, sharedStringsCacheSize) * (BYTES_PER_SHARED_STRING + 2 * sharedStringsSize / Math.max(1, stringCount))
+				: stringCount * BYTES_PER_SHARED_STRING + 2 * sharedStringsSize;
+		return WorkbookEstimate.builder()
+				.filename(file.getOriginalFilename())
+				.fileSize(file.getSize())
+				.uncompressedSize(uncompressedSize)
+				.cellCount(dimensionsKnown ? cellCount : -1)
+				.sharedStringCount(sharedStringCount)
+				.domHeap(domHeap)
+				.streamingHeap(STREAMING_BASE_BYTES + sharedStringsHeap)
+				.build();
+	}
+
+	/**
+	 * @param partName The name of the part in the archive, or the empty string for the package
+	 * @return The names in the archive of the parts targeted by the internal relationships of the part, by the last
+	 * segment of the relationship type
+	 */
+	private static Map<String, List<String>> readRelationships(XMLInputFactory xmlInputFactory, ZipFile zip, String partName) throws IOException {
+		int nameStart = partName.lastIndexOf('/') + 1;
+		ZipEntry entry = zip.getEntry(partName.substring(0, nameStart) + "_rels/" + partName.substring(nameStart) + ".rels");
+		Map<String, List<String>> parts = new HashMap<>();
+		if (entry == null) {
+			return parts;
+		}
+		URI source = URI.create("/" + partName);
+		try (InputStream inputStream = zip.getInputStream(entry)) {
+			XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(reader.getLocalName())
+							&& !"External".equals(reader.getAttributeValue(null, "TargetMode"))) {
+						String type = reader.getAttributeValue(null, "Type");
+						String target = reader.getAttributeValue(null, "Target");
+						if (type != null && target != null) {
+							parts.computeIfAbsent(type.substring(type.lastIndexOf('/')), t -> new ArrayList<>())
+									.add(source.resolve(target).getPath().substring(1));
+						}
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException | IllegalArgumentException e) {
+			throw new IOException("Cannot read the relationships of the workbook part " + partName, e);
+		}
+		return parts;
+	}
+
+	/**
+	 * @return The unique count of the shared strings table, or -1 if it is not declared
+	 */
+	private static long readSharedStringCount(XMLInputFactory xmlInputFactory, InputStream inputStream) throws IOException {
+		String count = readAttribute(xmlInputFactory, inputStream, "sst", "uniqueCount", "si");
+		try {
+			return count == null ? -1 : Long.parseLong(count);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return The number of cells of the range of the {@code dimension} element of the sheet, or -1 if there is none
+	 */
+	private static long readCellCount(XMLInputFactory xmlInputFactory, InputStream inputStream) throws IOException {
+		String ref = readAttribute(xmlInputFactory, inputStream, "dimension", "ref", "sheetData");
+		if (ref == null) {
+			return -1;
+		}
+		try {
+			CellRangeAddress range = ref.contains(":") ? CellRangeAddress.valueOf(ref) : CellRangeAddress.valueOf(ref + ":" + ref);
+			return (long) (range.getLastRow() - range.getFirstRow() + 1) * (range.getLastColumn() - range.getFirstColumn() + 1);
+		} catch (IllegalArgumentException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return The attribute of the first element with the given name, or null if the given end element or the end of
+	 * the document comes first. The stream is left open
+	 */
+	private static String readAttribute(XMLInputFactory xmlInputFactory, InputStream inputStream, String element, String attribute, String endElement) throws IOException {
+		try {
+			XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+						if (element.equals(reader.getLocalName())) {
+							return reader.getAttributeValue(null, attribute);
+						} else if (endElement.equals(reader.getLocalName())) {
+							return null;
+						}
+					}
+				}
+				return null;
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Cannot read the head of the workbook part", e);
+		}
+	}
+}
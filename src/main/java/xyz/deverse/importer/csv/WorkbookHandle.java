@@ -0,0 +1,35 @@
+package xyz.deverse.importer.csv;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An opened workbook, giving access to the rows of its sheets
+ */
+public interface WorkbookHandle extends Closeable {
+
+	List<String> getSheetNames();
+
+	/**
+	 * @param sheetIndex The index of the sheet in the workbook
+	 * @return The rows of the sheet, in order. Iterators that hold resources also implement {@link Closeable}
+	 */
+	Iterator<SheetRow> rowIterator(int sheetIndex);
+
+	/**
+	 * @param sheetIndex The index of the sheet in the workbook
+	 * @return The number of rows of the sheet, counting from the first row, as read from the sheet metadata or
+	 * estimated without reading the rows, or -1 if it is unknown
+	 */
+	default int estimateRowCount(int sheetIndex) {
+		return -1;
+	}
+
+	/**
+	 * @return True if the rows of different sheets can be iterated from different threads at the same time
+	 */
+	default boolean supportsConcurrentSheets() {
+		return false;
+	}
+}
@@ -0,0 +1,142 @@
+package xyz.deverse.importer.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Iterates the rows of a workbook one sheet after the other, without ever buffering a whole sheet. Sheets that are
+ * not selected are never opened. The workbook is closed as soon as the last row has been read.
+ */
+class WorkbookRowIterator implements Iterator<SheetRow> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WorkbookRowIterator.class);
+
+	private final WorkbookHandle workbook;
+	private final int numberOfSheets;
+	private final IntPredicate sheetFilter;
+	private final Predicate<SheetRow> rowFilter;
+	private final int[] rowOffsets;
+	private int rowCount;
+	private int sheetIndex = -1;
+	private Iterator<SheetRow> rows = Collections.emptyIterator();
+	private SheetRow next;
+	private boolean closed;
+
+	/**
+	 * @param sheetFilter Tells whether the sheet at the given index is read
+	 * @param rowFilter Tells whether a row of a sheet being read is returned
+	 */
+	WorkbookRowIterator(WorkbookHandle workbook, IntPredicate sheetFilter, Predicate<SheetRow> rowFilter) {
+		this.workbook = workbook;
+		this.numberOfSheets = workbook.getSheetNames().size();
+		this.sheetFilter = sheetFilter;
+		this.rowFilter = rowFilter;
+		this.rowOffsets = new int[numberOfSheets];
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (next == null && !closed) {
+			if (rows.hasNext()) {
+				SheetRow row = rows.next();
+				if (rowFilter.test(row)) {
+					rowCount++;
+					next = row;
+				}
+			} else if (sheetIndex + 1 < numberOfSheets) {
+				closeRows();
+				rows = sheetFilter.test(++sheetIndex) ? workbook.rowIterator(sheetIndex) : Collections.emptyIterator();
+				rowOffsets[sheetIndex] = rowCount;
+			} else {
+				close();
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public SheetRow next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		SheetRow row = next;
+		next = null;
+		return row;
+	}
+
+	/**
+	 * @return The number of selected rows of the sheets before the given one, which is being or has been iterated
+	 */
+	int getRowOffset(int sheetIndex) {
+		return rowOffsets[sheetIndex];
+	}
+
+	/**
+	 * Discard the remaining rows of the sheet currently iterated. They are still read and counted if a selected sheet
+	 * follows, so that its {@link #getRowOffset(int) row offset} is the same as if they had been iterated
+	 */
+	void skipSheet() {
+		if (next != null && next.getSheetIndex() == sheetIndex) {
+			next = null;
+		}
+		if (!closed && hasFollowingSheet()) {
+			while (rows.hasNext()) {
+				if (rowFilter.test(rows.next())) {
+					rowCount++;
+				}
+			}
+		}
+		closeRows();
+		rows = Collections.emptyIterator();
+	}
+
+	/**
+	 * Discard the remaining rows of the given sheet, if it is the sheet currently iterated
+	 */
+	void skipSheet(int sheetIndex) {
+		if (sheetIndex == this.sheetIndex) {
+			skipSheet();
+		}
+	}
+
+	private boolean hasFollowingSheet() {
+		for (int i = sheetIndex + 1; i < numberOfSheets; i++) {
+			if (sheetFilter.test(i)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void closeRows() {
+		if (rows instanceof Closeable) {
+			try {
+				((Closeable) rows).close();
+			} catch (IOException | UncheckedIOException e) {
+				LOGGER.warn("Cannot close sheet " + sheetIndex, e);
+			}
+		}
+	}
+
+	void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		closeRows();
+		try {
+			workbook.close();
+		} catch (IOException e) {
+			LOGGER.warn("Cannot close workbook", e);
+		}
+	}
+}
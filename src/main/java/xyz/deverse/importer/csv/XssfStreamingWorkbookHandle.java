@@ -0,0 +1,333 @@
+package xyz.deverse.importer.csv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.SAXException;
+
+/**
+ * XLSX workbook read with the POI event model: the sheet XML is pulled row by row, so that only the current row is
+ * held in memory whatever the size of the sheet. The shared strings table is either held in memory or, for workbooks
+ * with too many strings, stored on disk by {@link DiskBackedSharedStrings}
+ */
+class XssfStreamingWorkbookHandle implements WorkbookHandle {
+
+	private final File file;
+	private final OPCPackage pkg;
+	private final IntFunction<String> sharedStrings;
+	private final DiskBackedSharedStrings diskBackedSharedStrings;
+	private final StylesTable styles;
+	private final List<String> sheetNames = new ArrayList<>();
+	private final List<PackagePart> sheetParts = new ArrayList<>();
+	private final XMLInputFactory xmlInputFactory = XMLHelper.newXMLInputFactory();
+
+	private final int[] formatIndexes;
+	private final String[] formatStrings;
+
+	/**
+	 * @param file The workbook, which is deleted when the handle is closed
+	 * @param sharedStringsCacheSize The number of shared strings kept in memory when the table is stored on disk, or 0
+	 * to hold the whole table in memory
+	 */
+	XssfStreamingWorkbookHandle(File file, int sharedStringsCacheSize) throws IOException, OpenXML4JException, SAXException {
+		this.file = file;
+		this.pkg = OPCPackage.open(file, PackageAccess.READ);
+		try {
+			XSSFReader reader = new XSSFReader(pkg);
+			if (sharedStringsCacheSize > 0) {
+				this.diskBackedSharedStrings = new DiskBackedSharedStrings(pkg, xmlInputFactory, sharedStringsCacheSize);
+				this.sharedStrings = diskBackedSharedStrings::getString;
+			} else {
+				SharedStrings sharedStringsTable = new ReadOnlySharedStringsTable(pkg);
+				this.diskBackedSharedStrings = null;
+				this.sharedStrings = idx -> sharedStringsTable.getItemAt(idx).getString();
+			}
+			this.styles = reader.getStylesTable();
+			// Formats are resolved upfront, so that sheets can be read from different threads
+			int styleCount = styles == null ? 0 : styles.getNumCellStyles();
+			this.formatIndexes = new int[styleCount];
+			this.formatStrings = new String[styleCount];
+			for (int i = 0; i < styleCount; i++) {
+				XSSFCellStyle style = styles.getStyleAt(i);
+				int formatIndex = style == null ? 0 : style.getDataFormat();
+				String formatString = style == null ? null : style.getDataFormatString();
+				formatIndexes[i] = formatIndex;
+				formatStrings[i] = formatString == null ? BuiltinFormats.getBuiltinFormat(formatIndex) : formatString;
+			}
+			XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+			while (sheets.hasNext()) {
+				try (InputStream ignored = sheets.next()) {
+					sheetNames.add(sheets.getSheetName());
+					sheetParts.add(sheets.getSheetPart());
+				}
+			}
+		} catch (IOException | OpenXML4JException | SAXException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public List<String> getSheetNames() {
+		return sheetNames;
+	}
+
+	@Override
+	public Iterator<SheetRow> rowIterator(int sheetIndex) {
+		return new SheetRowIterator(sheetIndex);
+	}
+
+	/**
+	 * Each sheet is pulled from its own stream of the package, and the shared strings and formats are only read
+	 */
+	@Override
+	public boolean supportsConcurrentSheets() {
+		return true;
+	}
+
+	/**
+	 * @return The last row of the range of the {@code dimension} element that precedes the sheet data
+	 */
+	@Override
+	public int estimateRowCount(int sheetIndex) {
+		try (InputStream inputStream = sheetParts.get(sheetIndex).getInputStream()) {
+			XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+						if ("dimension".equals(reader.getLocalName())) {
+							String ref = reader.getAttributeValue(null, "ref");
+							return ref == null ? -1 : toRowCount(ref.substring(ref.indexOf(':') + 1));
+						} else if ("sheetData".equals(reader.getLocalName())) {
+							return -1;
+						}
+					}
+				}
+				return -1;
+			} finally {
+				reader.close();
+			}
+		} catch (IOException | XMLStreamException e) {
+			throw new IllegalStateException("Cannot read the dimension of sheet " + sheetNames.get(sheetIndex), e);
+		}
+	}
+
+	private static int toRowCount(String cellReference) {
+		int start = 0;
+		while (start < cellReference.length() && !Character.isDigit(cellReference.charAt(start))) {
+			start++;
+		}
+		try {
+			return Integer.parseInt(cellReference.substring(start));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (diskBackedSharedStrings != null) {
+				diskBackedSharedStrings.close();
+			}
+		} finally {
+			pkg.revert();
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	private int getFormatIndex(int styleIndex) {
+		return styleIndex < formatIndexes.length ? formatIndexes[styleIndex] : 0;
+	}
+
+	private String getFormatString(int styleIndex) {
+		return styleIndex < formatStrings.length ? formatStrings[styleIndex] : BuiltinFormats.getBuiltinFormat(0);
+	}
+
+	private static int toColumnIndex(String cellReference) {
+		int column = 0;
+		for (int i = 0; i < cellReference.length(); i++) {
+			char c = cellReference.charAt(i);
+			if (c < 'A' || c > 'Z') {
+				break;
+			}
+			column = column * 26 + (c - 'A' + 1);
+		}
+		return column - 1;
+	}
+
+	private class SheetRowIterator implements Iterator<SheetRow>, Closeable {
+
+		private final String sheetName;
+		private final int sheetIndex;
+		private final InputStream inputStream;
+		private final XMLStreamReader reader;
+		private StreamedSheetRow next;
+		private int lastRowNum = -1;
+		private boolean closed;
+
+		SheetRowIterator(int sheetIndex) {
+			this.sheetIndex = sheetIndex;
+			this.sheetName = sheetNames.get(sheetIndex);
+			try {
+				this.inputStream = sheetParts.get(sheetIndex).getInputStream();
+				this.reader = xmlInputFactory.createXMLStreamReader(inputStream);
+			} catch (IOException | XMLStreamException e) {
+				throw new IllegalStateException("Cannot open sheet " + sheetName, e);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null && !closed) {
+				next = readRow();
+			}
+			return next != null;
+		}
+
+		@Override
+		public SheetRow next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			SheetRow row = next;
+			next = null;
+			return row;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!closed) {
+				closed = true;
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+					throw new IOException(e);
+				} finally {
+					inputStream.close();
+				}
+			}
+		}
+
+		private StreamedSheetRow readRow() {
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() == XMLStreamConstants.START_ELEMENT && "row".equals(reader.getLocalName())) {
+						return parseRow();
+					}
+				}
+				close();
+				return null;
+			} catch (XMLStreamException | IOException e) {
+				throw new IllegalStateException("Cannot read sheet " + sheetName, e);
+			}
+		}
+
+		private StreamedSheetRow parseRow() throws XMLStreamException {
+			String rowReference = reader.getAttributeValue(null, "r");
+			lastRowNum = rowReference == null ? lastRowNum + 1 : Integer.parseInt(rowReference) - 1;
+			StreamedSheetRow row = new StreamedSheetRow(sheetName, sheetIndex, lastRowNum);
+			int lastColumn = -1;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT && "c".equals(reader.getLocalName())) {
+					StreamedSheetCell cell = parseCell(lastColumn);
+					lastColumn = cell.getColumnIndex();
+					row.addCell(cell);
+				} else if (event == XMLStreamConstants.END_ELEMENT && "row".equals(reader.getLocalName())) {
+					break;
+				}
+			}
+			return row;
+		}
+
+		private StreamedSheetCell parseCell(int lastColumn) throws XMLStreamException {
+			String cellReference = reader.getAttributeValue(null, "r");
+			int column = cellReference == null ? lastColumn + 1 : toColumnIndex(cellReference);
+			String type = reader.getAttributeValue(null, "t");
+			String style = reader.getAttributeValue(null, "s");
+			boolean formula = false;
+			String value = null;
+			StringBuilder inlineText = new StringBuilder();
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					switch (reader.getLocalName()) {
+						case "f":
+							formula = true;
+							reader.getElementText();
+							break;
+						case "v":
+							value = reader.getElementText();
+							break;
+						case "t":
+							inlineText.append(reader.getElementText());
+							break;
+						case "rPh":
+							skipElement();
+							break;
+						default:
+							break;
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT && "c".equals(reader.getLocalName())) {
+					break;
+				}
+			}
+
+			StreamedSheetCell cell;
+			if ("inlineStr".equals(type)) {
+				cell = StreamedSheetCell.ofString(column, inlineText.toString());
+			} else if (value == null) {
+				cell = StreamedSheetCell.ofBlank(column);
+			} else if ("s".equals(type)) {
+				cell = StreamedSheetCell.ofString(column, sharedStrings.apply(Integer.parseInt(value)));
+			} else if ("str".equals(type) || "d".equals(type)) {
+				cell = StreamedSheetCell.ofString(column, value);
+			} else if ("b".equals(type)) {
+				cell = StreamedSheetCell.ofBoolean(column, "1".equals(value));
+			} else if ("e".equals(type)) {
+				cell = StreamedSheetCell.ofError(column, value);
+			} else {
+				int styleIndex = style == null ? 0 : Integer.parseInt(style);
+				cell = StreamedSheetCell.ofNumber(column, value, getFormatIndex(styleIndex), getFormatString(styleIndex));
+			}
+			return formula ? StreamedSheetCell.ofFormula(cell) : cell;
+		}
+
+		private void skipElement() throws XMLStreamException {
+			int depth = 1;
+			while (depth > 0 && reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					depth++;
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					depth--;
+				}
+			}
+		}
+	}
+}
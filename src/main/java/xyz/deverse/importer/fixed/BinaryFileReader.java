@@ -0,0 +1,197 @@
+package xyz.deverse.importer.fixed;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import xyz.deverse.importer.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Reader of files of fixed-length binary records without separators, such as mainframe extracts. Records are found
+ * by arithmetic on their length and their {@link BinaryOffset} fields are decoded from their bytes, so that EBCDIC
+ * text and packed decimals need no conversion to text beforehand
+ *
+ * @param <S>
+ */
+public abstract class BinaryFileReader<T, S extends FixedFileReader.FixedLine<T>> extends FileReader<ByteBuffer, S> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BinaryFileReader.class);
+
+    public static interface BinaryImportMapper<T, S extends ImportLine> extends ImportMapper<T, S> {
+
+        /**
+         * @return The binding of the {@link BinaryOffset} fields declared by the line type, compiled once per class
+         */
+        default BiFunction<S, ByteBuffer, S> propertyMapperFunction() {
+            return BinaryRecordBinder.bindingFunction();
+        }
+
+    }
+
+    private final BinaryImportMapper<T, S> mapper;
+
+    private final int recordLength;
+
+    private final Function<T, String> lineMessageFunction = node -> String.format("Imported instance %s", node.getClass().getSimpleName());
+
+    /**
+     * @param recordLength The length of each record, in bytes
+     */
+    public BinaryFileReader(MultipartFile file, Class<S> lineType, LinkedList<Consumer<ImportLine>> lineProcessors, Collection<ImportLine> importedLines, BinaryImportMapper<T, S> mapper, int recordLength) {
+        super(file, lineType, lineProcessors, importedLines);
+        this.mapper = mapper;
+        this.recordLength = recordLength;
+    }
+
+    @Override
+    public ReadFilter createFilter() {
+        return new ReadFilter();
+    }
+
+    /**
+     * The file is a single group, named after the file, whose rows are the values of the {@link BinaryOffset} fields
+     * of its first records, as text
+     */
+    @Override
+    public Preview preview(int rowCount) {
+        BinaryRecordBinder binder = BinaryRecordBinder.of(getLineType());
+        try (BinaryRecordReader reader = new BinaryRecordReader(Channels.newChannel(getFile().getInputStream()), recordLength)) {
+            String filename = getFile().getOriginalFilename();
+            List<List<String>> rows = new ArrayList<>();
+            while (rows.size() < rowCount && reader.hasNext()) {
+                rows.add(binder.values(reader.next()));
+            }
+            Preview preview = new Preview();
+            preview.setFilename(filename);
+            preview.setGroups(Collections.singletonList(filename));
+            preview.setRows(Collections.singletonMap(filename, rows));
+            return preview;
+        } catch (IOException | UncheckedIOException e) {
+            throw new UnsupportedOperationException("Cannot preview ", e);
+        }
+    }
+
+    /**
+     * The count of lines is exact, from the size of the file. A record that cannot be decoded gives an error line and
+     * the following records are still read, as does a truncated record at the end of the file
+     */
+    @Override
+    public Stream<ImportLine> read(ReadFilter filter) {
+        try {
+            BinaryRecordReader reader = new BinaryRecordReader(Channels.newChannel(getFile().getInputStream()), recordLength);
+            int recordsCount = (int) Math.min(Integer.MAX_VALUE, (getFile().getSize() + recordLength - 1) / recordLength);
+            AtomicInteger index = new AtomicInteger();
+            BiFunction<S, ByteBuffer, S> propertyMapper = mapper.propertyMapperFunction();
+            setIterator(reader);
+            return StreamSupport //
+                    .stream(Spliterators.spliteratorUnknownSize(getIterator(), Spliterator.ORDERED), false)
+                    .map(record -> {
+                        int idx = index.getAndAdd(1);
+                        ImportLine line;
+                        try {
+                            if (record.limit() < recordLength) {
+                                throw new IOException("The file ends with a truncated record of " + record.limit() + " bytes, instead of " + recordLength);
+                            }
+                            line = idx < mapper.skipLines() ? parseRecordForHeadersLine(idx, recordsCount) : parseRecordForNodeLine(idx, record, recordsCount, propertyMapper);
+                        } catch (IOException | RuntimeException e) {
+                            LOGGER.error(e.getMessage(), e);
+                            line = makeErrorLine(Level.ERROR, e, idx, recordsCount);
+                        }
+                        this.onParseLine(line);
+                        return line;
+                    });
+        } catch (IOException ioe) {
+            ImportLine[] errorLines = new ImportLine[] { makeErrorLine(Level.ERROR, ioe, 0, 1) };
+            return StreamSupport //
+                    .<ImportLine> stream(Spliterators.spliterator(errorLines, Spliterator.ORDERED), false) //
+                    .peek(line -> this.onParseLine(line));
+        }
+    }
+
+    /**
+     * Close the file, if its records were not all read
+     */
+    @Override
+    public void close() {
+        if (getIterator() instanceof BinaryRecordReader) {
+            ((BinaryRecordReader) getIterator()).close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ImportLine parseRecordForNodeLine(int idx, ByteBuffer record, int recordsCount, BiFunction<S, ByteBuffer, S> propertyMapper) {
+        S fixedLine = newLine();
+        fixedLine.setSeverity(Level.INFO);
+        fixedLine.setIndexInGroup(idx);
+        fixedLine.setIndex(idx);
+        fixedLine.setCount(recordsCount);
+        fixedLine.setSaveDepth(new AtomicInteger(0));
+        propertyMapper.apply(fixedLine, record);
+        fixedLine.setNodes(Collections.singletonList(mapper.toNode(fixedLine)));
+        if (!mapper.isNeeded()) {
+            return fixedLine;
+        }
+        return ImportMapper.MappedLine.<T> builder()//
+                .actionType(fixedLine.getActionType())
+                .count(fixedLine.getCount())
+                .excludedIds(new HashSet<>())
+                .group(fixedLine.getGroup())
+                .index(fixedLine.getIndex())
+                .indexInGroup(fixedLine.getIndexInGroup())
+                .message(fixedLine.getNodes().stream().map(t -> lineMessageFunction.apply((T) t)).collect(Collectors.joining("\n")))//
+                .nodes((List<T>) fixedLine.getNodes())//
+                .severity(fixedLine.getSeverity())//
+                .saveDepth(fixedLine.getSaveDepth())//
+                .build();
+    }
+
+    private S parseRecordForHeadersLine(int idx, int recordsCount) {
+        S fixedLine = newLine();
+        fixedLine.setCount(recordsCount);
+        fixedLine.setIndex(idx);
+        fixedLine.setIndexInGroup(idx);
+        fixedLine.setMessage("Skipping header record");
+        fixedLine.setSeverity(Level.INFO);
+        fixedLine.setSaveDepth(new AtomicInteger(0));
+        return fixedLine;
+    }
+
+    private ImportLine makeErrorLine(Level logLevel, Exception e, int index, int count) {
+        S errorLine = newLine();
+        errorLine.setCount(count);
+        errorLine.setIndex(index);
+        errorLine.setIndexInGroup(index);
+        errorLine.setNodes(new ArrayList<>());
+        errorLine.setMessage(e.getClass().getCanonicalName() + " " + e.getMessage());
+        errorLine.setSeverity(logLevel);
+        return errorLine;
+    }
+
+    private S newLine() {
+        try {
+            return getLineType().newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException("Cannot instantiate " + getLineType(), e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package xyz.deverse.importer.fixed;
+
+import xyz.deverse.importer.ImportStrategy;
+import xyz.deverse.importer.misc.ParameterizedClassTypeResolver;
+
+import java.lang.reflect.Type;
+
+/**
+ * Import strategy builder for files of fixed-length binary records
+ * @param <T> : node type
+ * @param <S> : line type
+ */
+public abstract class BinaryImportStrategyBuilder<T, S extends FixedFileReader.FixedLine<T>> {
+
+    /**
+     * Concrete implementation
+     */
+    public abstract class BinaryImportStrategy extends ImportStrategy<T, S> {
+
+        BinaryImportStrategy(Class<T> nodeType, Class<S> lineType, PostProcessCondition postProcessCondition) {
+            super();
+            this.postProcessCondition = postProcessCondition;
+            this.nodeType = nodeType;
+            this.lineType = lineType;
+        }
+
+        @Override
+        public void parse() {
+            fileReader = new BinaryFileReader<T, S>(BinaryImportStrategy.this.file,
+                    BinaryImportStrategy.this.lineType,
+                    BinaryImportStrategy.this.lineProcessors,
+                    BinaryImportStrategy.this.importedLines,
+                    BinaryImportStrategyBuilder.this.rowMapper,
+                    BinaryImportStrategyBuilder.this.recordLength) {};
+            super.parse();
+        }
+    }
+
+
+    private Class<T> nodeType;
+
+    private Class<S> lineType;
+
+    private BinaryFileReader.BinaryImportMapper<T, S> rowMapper;
+
+    private int recordLength;
+
+    private ImportStrategy.PostProcessCondition postProcessCondition = ImportStrategy.PostProcessCondition.ON_ALL_LINES;
+
+    @SuppressWarnings("unchecked")
+    public BinaryImportStrategyBuilder() {
+        Type[] typeParameters = ParameterizedClassTypeResolver.getTypeParameters(getClass());
+        this.nodeType = (Class<T>) typeParameters[0];
+        this.lineType = (Class<S>) typeParameters[1];
+    }
+
+    public BinaryImportStrategyBuilder<T, S> withRowMapper(BinaryFileReader.BinaryImportMapper<T, S> rowMapper) {
+        this.rowMapper = rowMapper;
+        return this;
+    }
+
+    /**
+     * The length of each record, in bytes. Records are not separated by line breaks
+     */
+    public BinaryImportStrategyBuilder<T, S> withRecordLength(int recordLength) {
+        this.recordLength = recordLength;
+        return this;
+    }
+
+    public BinaryImportStrategyBuilder<T, S> withPostProcessCondition(ImportStrategy.PostProcessCondition postProcessCondition) {
+        this.postProcessCondition = postProcessCondition;
+        return this;
+    }
+
+    public BinaryImportStrategy build() {
+        if (recordLength <= 0) {
+            throw new IllegalStateException("The record length must be set to a positive number of bytes, instead of " + recordLength);
+        }
+        return new BinaryImportStrategy(this.nodeType, this.lineType, this.postProcessCondition) {};
+    }
+
+
+}
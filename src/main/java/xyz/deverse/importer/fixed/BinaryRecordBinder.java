@@ -0,0 +1,247 @@
+package xyz.deverse.importer.fixed;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.ClassUtils;
+
+import xyz.deverse.importer.BinaryOffset;
+
+/**
+ * Binding of the {@link BinaryOffset} fields declared by a line type, compiled once per class into flat tables of
+ * offsets, decoders and setters. Numbers are decoded from the bytes of the record without any intermediate String
+ */
+class BinaryRecordBinder {
+
+    private static final ClassValue<BinaryRecordBinder> BINDERS = new ClassValue<BinaryRecordBinder>() {
+        @Override
+        protected BinaryRecordBinder computeValue(Class<?> lineType) {
+            return new BinaryRecordBinder(lineType);
+        }
+    };
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * Decodes the bytes of a record between two offsets
+     */
+    private interface FieldDecoder {
+
+        Object decode(ByteBuffer record, int start, int end);
+    }
+
+    private final Class<?> lineType;
+
+    private final int[] starts;
+
+    private final int[] ends;
+
+    private final FieldDecoder[] decoders;
+
+    private final MethodHandle[] setters;
+
+    static BinaryRecordBinder of(Class<?> lineType) {
+        return BINDERS.get(lineType);
+    }
+
+    /**
+     * @return A function binding a line to its record, which looks up the binder only when the class of the line
+     * changes
+     */
+    static <S> BiFunction<S, ByteBuffer, S> bindingFunction() {
+        return new BiFunction<S, ByteBuffer, S>() {
+
+            private BinaryRecordBinder binder;
+
+            @Override
+            public S apply(S line, ByteBuffer record) {
+                BinaryRecordBinder lineBinder = binder;
+                if (lineBinder == null || lineBinder.lineType != line.getClass()) {
+                    lineBinder = of(line.getClass());
+                    binder = lineBinder;
+                }
+                lineBinder.bind(line, record);
+                return line;
+            }
+        };
+    }
+
+    private BinaryRecordBinder(Class<?> lineType) {
+        this.lineType = lineType;
+        List<Field> fields = Stream.of(lineType.getDeclaredFields())
+                .filter(field -> field.isAnnotationPresent(BinaryOffset.class))
+                .collect(Collectors.toList());
+        starts = new int[fields.size()];
+        ends = new int[fields.size()];
+        decoders = new FieldDecoder[fields.size()];
+        setters = new MethodHandle[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            BinaryOffset offset = field.getAnnotation(BinaryOffset.class);
+            starts[i] = offset.start();
+            ends[i] = offset.end();
+            decoders[i] = decoderOf(field, offset);
+            setters[i] = unreflectSetter(field);
+        }
+    }
+
+    /**
+     * Set each field to the value decoded from the bytes of the record between its offsets
+     */
+    void bind(Object line, ByteBuffer record) {
+        for (int i = 0; i < setters.length; i++) {
+            set(setters[i], line, decode(i, record));
+        }
+    }
+
+    /**
+     * @return The values of the fields decoded from the bytes of the record, as text, in the order the fields are
+     * declared. A field that cannot be decoded has a null value
+     */
+    List<String> values(ByteBuffer record) {
+        List<String> values = new ArrayList<>(setters.length);
+        for (int i = 0; i < setters.length; i++) {
+            try {
+                values.add(Objects.toString(decode(i, record), null));
+            } catch (RuntimeException e) {
+                values.add(null);
+            }
+        }
+        return values;
+    }
+
+    private Object decode(int field, ByteBuffer record) {
+        if (ends[field] > record.limit()) {
+            throw new IndexOutOfBoundsException("Field at " + starts[field] + "-" + ends[field] + " is beyond the record length of " + record.limit());
+        }
+        return decoders[field].decode(record, starts[field], ends[field]);
+    }
+
+    private static FieldDecoder decoderOf(Field field, BinaryOffset offset) {
+        Class<?> type = ClassUtils.primitiveToWrapper(field.getType());
+        int scale = offset.scale();
+        if (offset.encoding() == BinaryOffset.Encoding.TEXT) {
+            if (type != String.class) {
+                throw new IllegalStateException("Cannot bind field " + field + ": text is bound to String fields");
+            }
+            Charset charset = Charset.forName(offset.charset());
+            return (record, start, end) -> toText(record, start, end, charset, offset.trim());
+        } else if (type != Integer.class && type != Long.class && type != BigDecimal.class) {
+            throw new IllegalStateException("Cannot bind field " + field + ": numbers are bound to int, long and BigDecimal fields");
+        } else if (scale != 0 && type != BigDecimal.class) {
+            throw new IllegalStateException("Cannot bind field " + field + ": a scale is only supported by BigDecimal fields");
+        } else if (offset.encoding() == BinaryOffset.Encoding.BINARY && offset.end() - offset.start() > Long.BYTES) {
+            throw new IllegalStateException("Cannot bind field " + field + ": binary integers are at most 8 bytes long");
+        }
+        FieldDecoder decoder = offset.encoding() == BinaryOffset.Encoding.PACKED_DECIMAL
+                ? BinaryRecordBinder::toPackedDecimal
+                : (record, start, end) -> toBinaryInteger(record, start, end);
+        if (type == BigDecimal.class) {
+            return (record, start, end) -> {
+                Object value = decoder.decode(record, start, end);
+                return value instanceof BigInteger ? new BigDecimal((BigInteger) value, scale) : BigDecimal.valueOf((Long) value, scale);
+            };
+        }
+        return (record, start, end) -> {
+            Object value = decoder.decode(record, start, end);
+            boolean overflow;
+            long longValue;
+            if (value instanceof BigInteger) {
+                overflow = ((BigInteger) value).bitLength() >= Long.SIZE;
+                longValue = ((BigInteger) value).longValue();
+            } else {
+                longValue = (Long) value;
+                overflow = false;
+            }
+            if (overflow || (type == Integer.class && (longValue < Integer.MIN_VALUE || longValue > Integer.MAX_VALUE))) {
+                throw new ArithmeticException("Value of field " + field.getName() + " overflows " + field.getType());
+            }
+            return type == Integer.class ? (Object) (int) longValue : (Object) longValue;
+        };
+    }
+
+    private static String toText(ByteBuffer record, int start, int end, Charset charset, boolean trim) {
+        byte[] bytes = new byte[end - start];
+        for (int i = start; i < end; i++) {
+            bytes[i - start] = record.get(i);
+        }
+        String text = new String(bytes, charset);
+        return trim ? text.trim() : text;
+    }
+
+    /**
+     * @return The value as a Long, or as a BigInteger once its digits no longer fit in a long
+     */
+    private static Object toPackedDecimal(ByteBuffer record, int start, int end) {
+        long value = 0;
+        BigInteger bigValue = null;
+        // All the half-bytes but the last one are digits
+        int digitCount = 2 * (end - start) - 1;
+        for (int n = 0; n < digitCount; n++) {
+            int b = record.get(start + n / 2);
+            int digit = n % 2 == 0 ? (b >> 4) & 0x0F : b & 0x0F;
+            if (digit > 9) {
+                throw new NumberFormatException("Invalid digit in the packed decimal at " + start + "-" + end);
+            }
+            if (bigValue == null && value > (Long.MAX_VALUE - digit) / 10) {
+                bigValue = BigInteger.valueOf(value);
+            }
+            if (bigValue == null) {
+                value = value * 10 + digit;
+            } else {
+                bigValue = bigValue.multiply(BigInteger.TEN).add(BigInteger.valueOf(digit));
+            }
+        }
+        int sign = end > start ? record.get(end - 1) & 0x0F : 0x0C;
+        boolean negative = sign == 0x0B || sign == 0x0D;
+        if (sign < 0x0A) {
+            throw new NumberFormatException("Invalid sign in the packed decimal at " + start + "-" + end);
+        }
+        if (bigValue != null) {
+            return negative ? bigValue.negate() : bigValue;
+        }
+        return negative ? -value : value;
+    }
+
+    private static Long toBinaryInteger(ByteBuffer record, int start, int end) {
+        if (end == start) {
+            return 0L;
+        }
+        long value = record.get(start);
+        for (int i = start + 1; i < end; i++) {
+            value = (value << 8) | (record.get(i) & 0xFF);
+        }
+        return value;
+    }
+
+    private static void set(MethodHandle setter, Object line, Object value) {
+        try {
+            setter.invokeExact(line, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static MethodHandle unreflectSetter(Field field) {
+        try {
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot bind field " + field, e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package xyz.deverse.importer.fixed;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Fixed-length records of a channel, without separators, read in blocks of whole records. Each record is a view of
+ * the current block, valid until the next record is read. A truncated record at the end of the channel is returned
+ * as is, shorter than the record length
+ */
+class BinaryRecordReader implements Iterator<ByteBuffer>, Closeable {
+
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    private final ReadableByteChannel channel;
+
+    private final int recordLength;
+
+    private final ByteBuffer block;
+
+    private boolean endOfInput;
+
+    private boolean closed;
+
+    BinaryRecordReader(ReadableByteChannel channel, int recordLength) {
+        if (recordLength <= 0) {
+            throw new IllegalArgumentException("Invalid record length " + recordLength);
+        }
+        this.channel = channel;
+        this.recordLength = recordLength;
+        this.block = ByteBuffer.allocate(recordLength * Math.max(1, BLOCK_SIZE / recordLength));
+        block.flip();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (block.remaining() < recordLength && !endOfInput && !closed) {
+            try {
+                fill();
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (!block.hasRemaining()) {
+            close();
+        }
+        return block.hasRemaining();
+    }
+
+    @Override
+    public ByteBuffer next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ByteBuffer record = block.slice();
+        record.limit(Math.min(recordLength, block.remaining()));
+        block.position(block.position() + record.limit());
+        return record;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            block.limit(0);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Read the channel until the block is full or the input ends
+     */
+    private void fill() throws IOException {
+        block.compact();
+        while (block.hasRemaining() && !endOfInput) {
+            endOfInput = channel.read(block) < 0;
+        }
+        block.flip();
+    }
+}
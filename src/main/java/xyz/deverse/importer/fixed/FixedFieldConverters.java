@@ -0,0 +1,151 @@
+package xyz.deverse.importer.fixed;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+
+import org.apache.commons.lang3.ClassUtils;
+
+/**
+ * Converters of the characters of a {@link xyz.deverse.importer.FixedOffset} field to the type of the field, resolved
+ * once per field. Numbers are parsed in place from the line, so that a String is only created for String fields, or
+ * fields of a type a String is assigned to, such as Object or CharSequence
+ */
+final class FixedFieldConverters {
+
+    /**
+     * The longest unscaled value of a decimal parsed in place, beyond which it is parsed from a String
+     */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    /**
+     * Converts the characters of a line between two offsets
+     */
+    interface FieldConverter {
+
+        /**
+         * @return The value of the field, or null if a number field is blank
+         */
+        Object convert(CharSequence line, int start, int end);
+    }
+
+    private FixedFieldConverters() {
+    }
+
+    /**
+     * @param trim True to trim the spaces around the value of a String field
+     */
+    static FieldConverter of(Field field, boolean trim) {
+        Class<?> type = ClassUtils.primitiveToWrapper(field.getType());
+        if (type.isAssignableFrom(String.class)) {
+            return trim ? FixedFieldConverters::toTrimmedString : (line, start, end) -> line.subSequence(start, end).toString();
+        } else if (type == Integer.class) {
+            return FixedFieldConverters::toInteger;
+        } else if (type == Long.class) {
+            return FixedFieldConverters::toLong;
+        } else if (type == BigDecimal.class) {
+            return FixedFieldConverters::toDecimal;
+        }
+        throw new IllegalStateException("Cannot bind field " + field + ": only int, long, BigDecimal and fields a String is assigned to are supported");
+    }
+
+    private static String toTrimmedString(CharSequence line, int start, int end) {
+        int from = skipSpaces(line, start, end);
+        int to = skipTrailingSpaces(line, from, end);
+        return line.subSequence(from, to).toString();
+    }
+
+    private static Integer toInteger(CharSequence line, int start, int end) {
+        Long value = toLong(line, start, end);
+        if (value != null && (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)) {
+            throw invalidNumber(line, start, end);
+        }
+        return value == null ? null : value.intValue();
+    }
+
+    private static Long toLong(CharSequence line, int start, int end) {
+        int from = skipSpaces(line, start, end);
+        int to = skipTrailingSpaces(line, from, end);
+        if (from == to) {
+            return null;
+        }
+        boolean negative = line.charAt(from) == '-';
+        if (negative || line.charAt(from) == '+') {
+            from++;
+        }
+        if (from == to) {
+            throw invalidNumber(line, start, end);
+        }
+        // Accumulated negatively, as Long.parseLong does, to reach Long.MIN_VALUE
+        long value = 0;
+        try {
+            for (int i = from; i < to; i++) {
+                value = Math.subtractExact(Math.multiplyExact(value, 10), digit(line, i, start, end));
+            }
+            return negative ? value : Math.negateExact(value);
+        } catch (ArithmeticException e) {
+            throw invalidNumber(line, start, end);
+        }
+    }
+
+    private static BigDecimal toDecimal(CharSequence line, int start, int end) {
+        int from = skipSpaces(line, start, end);
+        int to = skipTrailingSpaces(line, from, end);
+        if (from == to) {
+            return null;
+        }
+        int digitsStart = from;
+        boolean negative = line.charAt(from) == '-';
+        if (negative || line.charAt(from) == '+') {
+            digitsStart++;
+        }
+        int point = -1;
+        for (int i = digitsStart; i < to; i++) {
+            if (line.charAt(i) == '.' && point < 0) {
+                point = i;
+            }
+        }
+        int digitCount = to - digitsStart - (point < 0 ? 0 : 1);
+        if (digitCount > MAX_LONG_DIGITS) {
+            try {
+                return new BigDecimal(line.subSequence(from, to).toString());
+            } catch (NumberFormatException e) {
+                throw invalidNumber(line, start, end);
+            }
+        } else if (digitCount == 0) {
+            throw invalidNumber(line, start, end);
+        }
+        long unscaledValue = 0;
+        for (int i = digitsStart; i < to; i++) {
+            if (i != point) {
+                unscaledValue = unscaledValue * 10 + digit(line, i, start, end);
+            }
+        }
+        return BigDecimal.valueOf(negative ? -unscaledValue : unscaledValue, point < 0 ? 0 : to - point - 1);
+    }
+
+    private static int digit(CharSequence line, int index, int start, int end) {
+        char c = line.charAt(index);
+        if (c < '0' || c > '9') {
+            throw invalidNumber(line, start, end);
+        }
+        return c - '0';
+    }
+
+    private static int skipSpaces(CharSequence line, int start, int end) {
+        while (start < end && line.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int skipTrailingSpaces(CharSequence line, int start, int end) {
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static NumberFormatException invalidNumber(CharSequence line, int start, int end) {
+        return new NumberFormatException("For input string: \"" + line.subSequence(start, end) + "\"");
+    }
+}
@@ -1,10 +1,9 @@
 package xyz.deverse.importer.fixed;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.LineNumberReader;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -25,7 +24,6 @@ import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import xyz.deverse.importer.*;
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.event.Level;
@@ -45,25 +43,11 @@ public abstract class FixedFileReader<T, S extends FixedFileReader.FixedLine<T>>
 
     public static interface StringImportMapper<T, S extends ImportLine> extends ImportMapper<T, S> {
 
+        /**
+         * @return The binding of the {@link FixedOffset} fields declared by the line type, compiled once per class
+         */
         default BiFunction<S, String, S> propertyMapperFunction() {
-            return (o, row) -> {
-                Stream.of(o.getClass().getDeclaredFields())
-                        .map(field -> {
-                            field.setAccessible(true);
-                            return field;
-                        })
-                        .filter(f -> f.isAnnotationPresent(FixedOffset.class))
-                        .forEach(f -> {
-                            try {
-                                f.set(o, StringUtils.substring(row,
-                                        f.getAnnotation(FixedOffset.class).start(),
-                                        f.getAnnotation(FixedOffset.class).end()));
-                            } catch (IllegalAccessException e) {
-                                LOGGER.error("...");
-                            }
-                        });
-                return o;
-            };
+            return FixedLineBinder.bindingFunction();
         }
 
     }
@@ -119,6 +103,11 @@ public abstract class FixedFileReader<T, S extends FixedFileReader.FixedLine<T>>
 
     private final StringImportMapper<T, S> mapper;
 
+    /**
+     * The property mapper function of the {@link #mapper}, resolved once per read
+     */
+    private BiFunction<S, String, S> propertyMapper;
+
     private final Function<T, String> lineMessageFunction = node -> String.format("Imported instance %s", node.getClass().getSimpleName());
 
     public FixedFileReader(MultipartFile file, Class<S> lineType, LinkedList<Consumer<ImportLine>> lineProcessors, Collection<ImportLine> importedLines, StringImportMapper<T, S> mapper) {
@@ -128,26 +117,66 @@ public abstract class FixedFileReader<T, S extends FixedFileReader.FixedLine<T>>
     
     private AtomicInteger index;
 
+    /**
+     * The charset of the file, the platform charset by default
+     */
+    @Setter
+    private Charset charset = Charset.defaultCharset();
+
+    /**
+     * When greater than 1, the number of chunks of lines parsed at the same time, so the mapper must be thread-safe.
+     * Lines are still handed to the processors in order
+     */
+    @Setter
+    private int parallelism = 1;
+
+    private ParallelLineIterator lineIterator;
+
     @Override
     public ReadFilter createFilter() {
         return new ReadFilter();
     }
 
+    /**
+     * The file is a single group, named after the file, whose rows are the lines of the file
+     */
+    @Override
+    public Preview preview(int rowCount) {
+        try (FixedLineReader reader = new FixedLineReader(Channels.newChannel(getFile().getInputStream()), charset)) {
+            String filename = getFile().getOriginalFilename();
+            Preview preview = new Preview();
+            preview.setFilename(filename);
+            preview.setGroups(Collections.singletonList(filename));
+            preview.setRows(Collections.singletonMap(filename, StreamSupport
+                    .stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED), false)
+                    .limit(rowCount)
+                    .map(Collections::singletonList)
+                    .collect(Collectors.toList())));
+            return preview;
+        } catch (IOException e) {
+            throw new UnsupportedOperationException("Cannot preview ", e);
+        }
+    }
+
     @Override
     public Stream<ImportLine> read(ReadFilter filter) {
-        BufferedReader reader;
         try {
-            reader = initializeReader(getFile().getInputStream());
-            LineNumberReader lineNumberReader = new LineNumberReader(reader);
-            lineNumberReader.skip(Long.MAX_VALUE);
-            int linesCount = lineNumberReader.getLineNumber();
-            lineNumberReader.close();
-
-            reader = initializeReader(getFile().getInputStream());
-            setIterator(reader.lines().iterator());
-            return StreamSupport //
-                    .stream(Spliterators.spliteratorUnknownSize(getIterator(), Spliterator.ORDERED), false)
-                    .map(row -> parseRow(getLineType(), mapper, index.getAndAdd(1), row)) //
+            FixedLineReader reader = initializeReader(getFile().getInputStream());
+            int linesCount = reader.estimateLinesCount(getFile().getSize());
+            setIterator(reader);
+            Stream<ImportLine> lines;
+            if (parallelism > 1) {
+                // Each line is parsed from one row, so lines are indexed in the order they are delivered
+                lineIterator = new ParallelLineIterator(reader, (idx, row) -> parseRow(getLineType(), mapper, idx, row), parallelism);
+                lines = StreamSupport //
+                        .stream(Spliterators.spliteratorUnknownSize(lineIterator, Spliterator.ORDERED), false)
+                        .peek(line -> index.getAndAdd(1));
+            } else {
+                lines = StreamSupport //
+                        .stream(Spliterators.spliteratorUnknownSize(getIterator(), Spliterator.ORDERED), false)
+                        .map(row -> parseRow(getLineType(), mapper, index.getAndAdd(1), row));
+            }
+            return lines //
                     .map(line -> {
                         try {
                             this.onParseLine(line);
@@ -181,6 +210,35 @@ public abstract class FixedFileReader<T, S extends FixedFileReader.FixedLine<T>>
         }
     }
 
+    @Override
+    public boolean hasNext() {
+        return lineIterator != null ? lineIterator.hasNext() : super.hasNext();
+    }
+
+    /**
+     * Stop the chunks parsed in parallel, or read the remaining lines otherwise
+     */
+    @Override
+    public void abort() {
+        if (lineIterator != null) {
+            lineIterator.close();
+        } else {
+            super.abort();
+        }
+    }
+
+    /**
+     * Close the file, if its lines were not all read
+     */
+    @Override
+    public void close() {
+        if (lineIterator != null) {
+            lineIterator.close();
+        } else if (getIterator() instanceof FixedLineReader) {
+            ((FixedLineReader) getIterator()).close();
+        }
+    }
+
     private ImportLine parseRow(Class<S> clazz, StringImportMapper<T, S> mapper, Integer idx, String row) {
         // skipping header rows
         if (idx < mapper.skipLines()) {
@@ -200,7 +258,7 @@ public abstract class FixedFileReader<T, S extends FixedFileReader.FixedLine<T>>
             fixedLine.setIndex(idx);
             fixedLine.setCount(idx);
             fixedLine.setSaveDepth(new AtomicInteger(0));
-            mapper.propertyMapperFunction().apply(fixedLine, row);
+            propertyMapperOf(mapper).apply(fixedLine, row);
             fixedLine.setNodes(Collections.singletonList(mapper.toNode(fixedLine)));
             if (mapper.isNeeded()) {
                 return ImportMapper.MappedLine.<T> builder()//
@@ -223,6 +281,10 @@ public abstract class FixedFileReader<T, S extends FixedFileReader.FixedLine<T>>
         }
     }
 
+    private BiFunction<S, String, S> propertyMapperOf(StringImportMapper<T, S> mapper) {
+        return mapper == this.mapper && propertyMapper != null ? propertyMapper : mapper.propertyMapperFunction();
+    }
+
     private S parseRowForHeadersLine(Class<S> clazz, Integer row, Supplier<String> headerMessageSupplier) {
         try {
             S fixedLine = clazz.newInstance();
@@ -256,8 +318,14 @@ public abstract class FixedFileReader<T, S extends FixedFileReader.FixedLine<T>>
         }
     }
 
-    private BufferedReader initializeReader(InputStream inputStream) {
+    /**
+     * The channel of a {@link java.io.FileInputStream} is the one of its file, so that uploads stored on disk are read
+     * without copies
+     */
+    private FixedLineReader initializeReader(InputStream inputStream) {
     	index = new AtomicInteger();
-        return new BufferedReader(new InputStreamReader(inputStream));
+        lineIterator = null;
+        propertyMapper = mapper.propertyMapperFunction();
+        return new FixedLineReader(Channels.newChannel(inputStream), charset);
     }
 }
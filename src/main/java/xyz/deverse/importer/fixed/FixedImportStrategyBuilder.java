@@ -4,6 +4,7 @@ import xyz.deverse.importer.ImportStrategy;
 import xyz.deverse.importer.misc.ParameterizedClassTypeResolver;
 
 import java.lang.reflect.Type;
+import java.nio.charset.Charset;
 
 /**
  * Morpho import strategy builder
@@ -26,11 +27,14 @@ public abstract class FixedImportStrategyBuilder<T, S extends FixedFileReader.Fi
 
         @Override
         public void parse() {
-            fileReader = new FixedFileReader<T, S>(FixedImportStrategy.this.file,
+            FixedFileReader<T, S> fixedFileReader = new FixedFileReader<T, S>(FixedImportStrategy.this.file,
                     FixedImportStrategy.this.lineType,
                     FixedImportStrategy.this.lineProcessors,
                     FixedImportStrategy.this.importedLines,
                     FixedImportStrategyBuilder.this.rowMapper) {};
+            fixedFileReader.setCharset(FixedImportStrategyBuilder.this.charset);
+            fixedFileReader.setParallelism(FixedImportStrategyBuilder.this.parallelism);
+            fileReader = fixedFileReader;
             super.parse();
         }
     }
@@ -44,6 +48,10 @@ public abstract class FixedImportStrategyBuilder<T, S extends FixedFileReader.Fi
 
     private ImportStrategy.PostProcessCondition postProcessCondition = ImportStrategy.PostProcessCondition.ON_ALL_LINES;
 
+    private Charset charset = Charset.defaultCharset();
+
+    private int parallelism = 1;
+
     public FixedImportStrategyBuilder() {
         Type[] typeParameters = ParameterizedClassTypeResolver.getTypeParameters(getClass());
         this.nodeType = (Class<T>) typeParameters[0];
@@ -60,6 +68,23 @@ public abstract class FixedImportStrategyBuilder<T, S extends FixedFileReader.Fi
         return this;
     }
 
+    /**
+     * Decode the lines of the file with the given charset, the platform charset by default
+     */
+    public FixedImportStrategyBuilder<T, S> withCharset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * Parse chunks of lines on the common fork-join pool, at most the given number at the same time. The row mapper
+     * must then be thread-safe. Lines are still processed in file order
+     */
+    public FixedImportStrategyBuilder<T, S> withParallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
     public FixedImportStrategy build() {
         return new FixedImportStrategy(this.nodeType, this.lineType, this.postProcessCondition) {};
     }
@@ -0,0 +1,124 @@
+package xyz.deverse.importer.fixed;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.StringUtils;
+
+import xyz.deverse.importer.FixedOffset;
+
+/**
+ * Binding of the {@link FixedOffset} fields declared by a line type, compiled once per class into flat tables of
+ * offsets, converters and setters, so that binding a row involves no reflection. Fields are converted from the
+ * characters of the row, read in place
+ */
+class FixedLineBinder {
+
+    private static final ClassValue<FixedLineBinder> BINDERS = new ClassValue<FixedLineBinder>() {
+        @Override
+        protected FixedLineBinder computeValue(Class<?> lineType) {
+            return new FixedLineBinder(lineType);
+        }
+    };
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<?> lineType;
+
+    private final int[] starts;
+
+    private final int[] ends;
+
+    private final FixedFieldConverters.FieldConverter[] converters;
+
+    private final boolean[] primitives;
+
+    private final MethodHandle[] setters;
+
+    static FixedLineBinder of(Class<?> lineType) {
+        return BINDERS.get(lineType);
+    }
+
+    /**
+     * @return A function binding a line to its row, which looks up the binder only when the class of the line changes
+     */
+    static <S> BiFunction<S, String, S> bindingFunction() {
+        return new BiFunction<S, String, S>() {
+
+            private FixedLineBinder binder;
+
+            @Override
+            public S apply(S line, String row) {
+                FixedLineBinder lineBinder = binder;
+                if (lineBinder == null || lineBinder.lineType != line.getClass()) {
+                    lineBinder = of(line.getClass());
+                    binder = lineBinder;
+                }
+                lineBinder.bind(line, row);
+                return line;
+            }
+        };
+    }
+
+    private FixedLineBinder(Class<?> lineType) {
+        this.lineType = lineType;
+        List<Field> fields = Stream.of(lineType.getDeclaredFields())
+                .filter(field -> field.isAnnotationPresent(FixedOffset.class))
+                .collect(Collectors.toList());
+        starts = new int[fields.size()];
+        ends = new int[fields.size()];
+        converters = new FixedFieldConverters.FieldConverter[fields.size()];
+        primitives = new boolean[fields.size()];
+        setters = new MethodHandle[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            FixedOffset offset = field.getAnnotation(FixedOffset.class);
+            starts[i] = offset.start();
+            ends[i] = offset.end();
+            converters[i] = FixedFieldConverters.of(field, offset.trim());
+            primitives[i] = field.getType().isPrimitive();
+            setters[i] = unreflectSetter(field);
+        }
+    }
+
+    /**
+     * Set each field to the value of the characters of the row between its offsets, resolved as
+     * {@link StringUtils#substring(String, int, int)} does. A primitive field whose value is blank keeps its value
+     */
+    void bind(Object line, CharSequence row) {
+        int length = row.length();
+        for (int i = 0; i < setters.length; i++) {
+            int start = Math.min(length, starts[i] < 0 ? Math.max(0, starts[i] + length) : starts[i]);
+            int end = Math.min(length, ends[i] < 0 ? Math.max(0, ends[i] + length) : ends[i]);
+            Object value = converters[i].convert(row, start, Math.max(start, end));
+            if (value != null || !primitives[i]) {
+                set(setters[i], line, value);
+            }
+        }
+    }
+
+    private static void set(MethodHandle setter, Object line, Object value) {
+        try {
+            setter.invokeExact(line, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static MethodHandle unreflectSetter(Field field) {
+        try {
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot bind field " + field, e);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package xyz.deverse.importer.fixed;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lines of a channel, decoded with an explicit charset in a single pass through large buffers. As for
+ * {@link java.io.BufferedReader#lines()}, a line ends with LF, CR or CRLF, and malformed input is replaced
+ */
+class FixedLineReader implements Iterator<String>, Closeable {
+
+    static final int BLOCK_SIZE = 1 << 20;
+
+    private final ReadableByteChannel channel;
+
+    private final CharsetDecoder decoder;
+
+    private final ByteBuffer bytes = ByteBuffer.allocate(BLOCK_SIZE);
+
+    private final CharBuffer chars = CharBuffer.allocate(BLOCK_SIZE);
+
+    private boolean endOfInput;
+
+    private boolean flushed;
+
+    private boolean skipLineFeed;
+
+    private boolean closed;
+
+    private String next;
+
+    FixedLineReader(ReadableByteChannel channel, Charset charset) {
+        this.channel = channel;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        bytes.flip();
+        chars.flip();
+    }
+
+    /**
+     * Count the lines of the first block, which is read if it was not yet. The count is exact if the block holds the
+     * whole input, otherwise it is extrapolated to the given size
+     *
+     * @param size The size of the input, in bytes
+     */
+    int estimateLinesCount(long size) throws IOException {
+        if (!chars.hasRemaining() && !closed) {
+            fill();
+        }
+        int linesCount = 0;
+        for (int i = chars.position(); i < chars.limit(); i++) {
+            char c = chars.get(i);
+            if (c == '\n' || (c == '\r' && (i + 1 == chars.limit() || chars.get(i + 1) != '\n'))) {
+                linesCount++;
+            }
+        }
+        if (flushed || linesCount == 0) {
+            return linesCount;
+        }
+        long consumedBytes = bytes.position();
+        return (int) Math.min(Integer.MAX_VALUE, size * linesCount / Math.max(1, consumedBytes));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !closed) {
+            try {
+                next = readLine();
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String line = next;
+        next = null;
+        return line;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * @return The next line, or null at the end of the input
+     */
+    private String readLine() throws IOException {
+        StringBuilder line = null;
+        while (true) {
+            if (!chars.hasRemaining() && !fill()) {
+                close();
+                return line == null ? null : line.toString();
+            }
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (chars.get(chars.position()) == '\n') {
+                    chars.position(chars.position() + 1);
+                    continue;
+                }
+            }
+            int start = chars.position();
+            int limit = chars.limit();
+            for (int i = start; i < limit; i++) {
+                char c = chars.get(i);
+                if (c == '\n' || c == '\r') {
+                    chars.position(i + 1);
+                    skipLineFeed = c == '\r';
+                    if (line == null) {
+                        return new String(chars.array(), chars.arrayOffset() + start, i - start);
+                    }
+                    return line.append(chars.array(), chars.arrayOffset() + start, i - start).toString();
+                }
+            }
+            // The line continues in the next block
+            if (line == null) {
+                line = new StringBuilder(limit - start + 80);
+            }
+            line.append(chars.array(), chars.arrayOffset() + start, limit - start);
+            chars.position(limit);
+        }
+    }
+
+    /**
+     * Decode the next characters, reading the channel as needed
+     *
+     * @return False at the end of the input
+     */
+    private boolean fill() throws IOException {
+        if (flushed) {
+            return false;
+        }
+        chars.clear();
+        while (true) {
+            decoder.decode(bytes, chars, endOfInput);
+            if (endOfInput) {
+                decoder.flush(chars);
+                flushed = true;
+                chars.flip();
+                return chars.hasRemaining();
+            }
+            if (chars.position() > 0) {
+                chars.flip();
+                return true;
+            }
+            bytes.compact();
+            int read = channel.read(bytes);
+            bytes.flip();
+            endOfInput = read < 0;
+        }
+    }
+}
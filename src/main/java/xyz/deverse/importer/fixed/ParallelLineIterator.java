@@ -0,0 +1,121 @@
+package xyz.deverse.importer.fixed;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import xyz.deverse.importer.ImportLine;
+
+/**
+ * Iterates the lines of a file, parsed in chunks on the common fork-join pool ahead of the reader. The file is split
+ * into lines and each line is given its index on the reading thread. Parsed lines are delivered in file order, with a
+ * bounded number of chunks held in memory
+ */
+class ParallelLineIterator implements Iterator<ImportLine> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelLineIterator.class);
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final FixedLineReader reader;
+
+    private final BiFunction<Integer, String, ImportLine> lineParser;
+
+    private final int parallelism;
+
+    private final Deque<CompletableFuture<List<ImportLine>>> pendingChunks = new ArrayDeque<>();
+
+    private int index;
+
+    private Iterator<ImportLine> lines = Collections.emptyIterator();
+
+    private boolean closed;
+
+    /**
+     * @param lineParser Parses a line from its index and text, on a worker thread
+     * @param parallelism The number of chunks parsed at the same time
+     */
+    ParallelLineIterator(FixedLineReader reader, BiFunction<Integer, String, ImportLine> lineParser, int parallelism) {
+        this.reader = reader;
+        this.lineParser = lineParser;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!lines.hasNext() && !closed) {
+            fillPendingChunks();
+            if (pendingChunks.isEmpty()) {
+                close();
+            } else {
+                lines = join(pendingChunks.pollFirst()).iterator();
+            }
+        }
+        return lines.hasNext();
+    }
+
+    @Override
+    public ImportLine next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return lines.next();
+    }
+
+    /**
+     * Wait for the chunks being parsed and close the file
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        lines = Collections.emptyIterator();
+        for (CompletableFuture<List<ImportLine>> chunk : pendingChunks) {
+            try {
+                chunk.join();
+            } catch (RuntimeException e) {
+                LOGGER.debug("Chunk parsed while closing failed", e);
+            }
+        }
+        pendingChunks.clear();
+        reader.close();
+    }
+
+    private void fillPendingChunks() {
+        while (pendingChunks.size() < parallelism && reader.hasNext()) {
+            int firstIndex = index;
+            List<String> chunkLines = new ArrayList<>(CHUNK_SIZE);
+            while (chunkLines.size() < CHUNK_SIZE && reader.hasNext()) {
+                chunkLines.add(reader.next());
+            }
+            index += chunkLines.size();
+            pendingChunks.addLast(CompletableFuture.supplyAsync(() -> {
+                List<ImportLine> parsedLines = new ArrayList<>(chunkLines.size());
+                for (int i = 0; i < chunkLines.size(); i++) {
+                    parsedLines.add(lineParser.apply(firstIndex + i, chunkLines.get(i)));
+                }
+                return parsedLines;
+            }));
+        }
+    }
+
+    private List<ImportLine> join(CompletableFuture<List<ImportLine>> chunk) {
+        try {
+            return chunk.join();
+        } catch (CompletionException e) {
+            close();
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+}
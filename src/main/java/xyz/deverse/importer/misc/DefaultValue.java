@@ -1,5 +1,10 @@
 package xyz.deverse.importer.misc;
 
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 /**
  * Default value
  */
@@ -10,4 +15,18 @@ public final class DefaultValue {
      */
     public static final String[] BOOLEAN_FLAGS = new String[] {"oui", "yes", "y", "o"};
 
+    private static final Set<String> BOOLEAN_FLAG_SET = Stream.of(BOOLEAN_FLAGS)
+            .map(flag -> flag.toLowerCase(Locale.ROOT))
+            .collect(Collectors.toSet());
+
+    private static final int BOOLEAN_FLAG_MAX_LENGTH = Stream.of(BOOLEAN_FLAGS).mapToInt(String::length).max().orElse(0);
+
+    /**
+     * @return True if the value is one of the {@link #BOOLEAN_FLAGS}, ignoring case
+     */
+    public static boolean isBooleanFlag(CharSequence value) {
+        return value != null && value.length() <= BOOLEAN_FLAG_MAX_LENGTH
+                && BOOLEAN_FLAG_SET.contains(value.toString().toLowerCase(Locale.ROOT));
+    }
+
 }
@@ -2,37 +2,65 @@ package xyz.deverse.importer.importer.csv;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.RichTextString;
 import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.streaming.SXSSFCell;
 import org.apache.poi.xssf.streaming.SXSSFRow;
 import org.apache.poi.xssf.streaming.SXSSFSheet;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.event.Level;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.util.FileSystemUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import xyz.deverse.importer.ActionType;
 import xyz.deverse.importer.ImportLine;
+import xyz.deverse.importer.Preview;
 import xyz.deverse.importer.ReadFilter;
 import xyz.deverse.importer.csv.CsvColumn;
 import xyz.deverse.importer.csv.CsvFileReader;
+import xyz.deverse.importer.csv.MemoryBudgetAdmissionPolicy;
+import xyz.deverse.importer.csv.ParsedFileCache;
+import xyz.deverse.importer.csv.WorkbookEstimate;
 
 public class TestCsvFileReader  {
 
@@ -85,6 +113,55 @@ public class TestCsvFileReader  {
 		int field2;
 	}
 
+	public static class HeaderCsvLine extends CsvFileReader.CsvLine<TestNode> {
+
+		@CsvColumn(0)
+		String cell0;
+
+		@CsvColumn(value = 9, header = " HEAD1 ")
+		String text;
+
+		@CsvColumn(value = 2, header = "missing")
+		Integer number;
+	}
+
+	public enum Answer {
+		YES, NO
+	}
+
+	public static class ConvertedCsvLine extends CsvFileReader.CsvLine<TestNode> {
+
+		@CsvColumn(2)
+		int number;
+
+		@CsvColumn(3)
+		Answer answer;
+	}
+
+	public static class InternedCsvLine extends CsvFileReader.CsvLine<TestNode> {
+
+		@CsvColumn(0)
+		String cell0;
+
+		@CsvColumn(value = 1, interned = true)
+		String cell1;
+
+		@CsvColumn(2)
+		Integer cell2;
+	}
+
+	public static class InternedCsvRowMapper implements CsvFileReader.CsvImportMapper<TestNode, InternedCsvLine> {
+
+		@Override
+		public TestNode toNode(InternedCsvLine line) {
+			TestNode node = new TestNode();
+			node.setField0(line.cell0);
+			node.setField1(line.cell1);
+			node.setField2(line.cell2);
+			return node;
+		}
+	}
+
 	SXSSFCell cell1 = mock(SXSSFCell.class);
 	SXSSFCell cell2 = mock(SXSSFCell.class);
 	SXSSFCell cell3 = mock(SXSSFCell.class);
@@ -119,9 +196,14 @@ public class TestCsvFileReader  {
 	
 	static int skipLines = 1;
 
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	@Before
 	public void setup() {
+		skipLines = 1;
 		mockFile = mock(MultipartFile.class);
+		when(mockFile.getOriginalFilename()).thenReturn("test");
 		mapper = new TestCsvRowMapper();
 
 		readFilter = new ReadFilter();
@@ -329,6 +411,416 @@ public class TestCsvFileReader  {
 		assertEquals("Wrong severity for record 2", Level.INFO, testRecord.getSeverity());
 	}
 
+	@Test
+	public void testActionType() {
+		TestCsvLine csvLine = new TestCsvLine();
+		assertEquals("Wrong action type without flags", ActionType.PERSIST, csvFileReader.getActionType(csvLine));
+		csvLine.cell3 = "Yes";
+		assertEquals("Wrong action type with delete flag", ActionType.DELETE, csvFileReader.getActionType(csvLine));
+		csvLine.cell4 = "OUI";
+		assertEquals("Wrong action type with delete and ignore flags", ActionType.IGNORE, csvFileReader.getActionType(csvLine));
+		csvLine.cell4 = "N";
+		assertEquals("Wrong action type with delete flag only", ActionType.DELETE, csvFileReader.getActionType(csvLine));
+	}
+
+	@Test
+	public void testXlsxStreamingMatchesDom() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook()));
+		assertStreamingMatchesDom();
+	}
+
+	@Test
+	public void testXlsStreamingMatchesDom() throws IOException {
+		mockContent(makeWorkbook(new HSSFWorkbook()));
+		assertStreamingMatchesDom();
+	}
+
+	@Test
+	public void testWorkbookOpenedOncePerImport() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook()));
+		read(CsvFileReader.ReadMode.DOM);
+		verify(mockFile, times(1)).getInputStream();
+	}
+
+	@Test
+	public void testEmptyRowSkipsOnlyItsSheet() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook(), workbook -> workbook.getSheet("first").createRow(4).createCell(0).setCellValue("f2")));
+		for (CsvFileReader.ReadMode readMode : new CsvFileReader.ReadMode[] { CsvFileReader.ReadMode.DOM, CsvFileReader.ReadMode.STREAMING }) {
+			List<ImportLine> records = read(readMode);
+			assertEquals("Wrong line count in " + readMode, 5, records.size());
+			assertEquals("Wrong group of the header row after the empty row in " + readMode, "second", records.get(3).getGroup());
+			assertEquals("Wrong row of the header row after the empty row in " + readMode, 1, records.get(3).getIndexInGroup());
+			TestNode node = (TestNode) records.get(4).getNodes().iterator().next();
+			assertEquals("Wrong value after the empty row in " + readMode, "s1", node.getField0());
+		}
+	}
+
+	@Test
+	public void testRowSelection() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook()));
+		CsvFileReader<TestNode, TestCsvLine> csvFileReader = newReader(CsvFileReader.ReadMode.STREAMING);
+		ReadFilter filter = csvFileReader.createFilter();
+		assertFalse("Raw data should be extracted on demand", ((ReadFilter.LazyRawData) filter.getRawData()).isLoaded("first"));
+		BitSet rows = new BitSet();
+		rows.set(0);
+		rows.set(3);
+		filter.getRows().put("first", rows);
+
+		List<ImportLine> records = csvFileReader.read(filter).collect(Collectors.toList());
+		assertEquals("Wrong line count", 4, records.size());
+		assertEquals("Wrong line count for record 0", 4, records.get(0).getCount());
+		assertEquals("Wrong line message for record 1", "Row at index 4 is empty (EOF)", records.get(1).getMessage());
+	}
+
+	@Test
+	public void testGroupSelection() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook()));
+		CsvFileReader<TestNode, TestCsvLine> csvFileReader = newReader(CsvFileReader.ReadMode.STREAMING);
+		ReadFilter filter = csvFileReader.createFilter();
+		filter.getGroups().remove("first");
+
+		List<ImportLine> records = csvFileReader.read(filter).collect(Collectors.toList());
+		assertEquals("Wrong line count", 2, records.size());
+		assertEquals("Wrong line count for record 0", 2, records.get(0).getCount());
+		records.forEach(record -> assertEquals("Wrong group", "second", record.getGroup()));
+	}
+
+	@Test
+	public void testUnboundColumnsAreNotRead() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook(), workbook -> workbook.getSheet("second").createRow(2).createCell(9).setCellValue("unbound")));
+		List<ImportLine> records = read(CsvFileReader.ReadMode.STREAMING);
+		assertEquals("Wrong line count", 6, records.size());
+		assertEquals("Wrong line message for record 5", "Row at index 6 is empty (EOF)", records.get(5).getMessage());
+	}
+
+	@Test
+	public void testTypedCellValues() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook(), workbook -> {
+			Row row = workbook.getSheet("second").createRow(2);
+			row.createCell(0).setCellValue("s2");
+			row.createCell(2).setCellValue(3.7);
+		}));
+		for (CsvFileReader.ReadMode readMode : new CsvFileReader.ReadMode[] { CsvFileReader.ReadMode.DOM, CsvFileReader.ReadMode.STREAMING }) {
+			CsvFileReader<TestNode, TestCsvLine> csvFileReader = newReader(readMode);
+			csvFileReader.setTypedCellValues(true);
+			List<ImportLine> records = read(csvFileReader);
+			assertEquals("Wrong line count in " + readMode, 6, records.size());
+			TestNode node = (TestNode) records.get(4).getNodes().iterator().next();
+			assertEquals("Wrong text value in " + readMode, "s1", node.getField0());
+			assertEquals("Wrong numeric value in " + readMode, 42, node.getField2());
+			assertEquals("Fractional number bound to an integer in " + readMode, Level.ERROR, records.get(5).getSeverity());
+		}
+	}
+
+	@Test
+	public void testUserConverters() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook()));
+		DefaultConversionService conversionService = new DefaultConversionService();
+		conversionService.addConverter(String.class, Integer.class, source -> Integer.valueOf(source) + 1);
+		conversionService.addConverter(String.class, Answer.class, source -> "N".equals(source) ? Answer.NO : Answer.YES);
+		CsvFileReader<TestNode, ConvertedCsvLine> csvFileReader = newReader(ConvertedCsvLine.class, version -> new CsvFileReader.CsvImportMapper<TestNode, ConvertedCsvLine>() {
+			@Override
+			public TestNode toNode(ConvertedCsvLine line) {
+				TestNode node = new TestNode();
+				node.setField1(line.answer.name());
+				node.setField2(line.number);
+				return node;
+			}
+		}, CsvFileReader.ReadMode.STREAMING);
+		csvFileReader.setConversionService(conversionService);
+		List<ImportLine> records = read(csvFileReader);
+
+		assertEquals("Wrong line count", 5, records.size());
+		TestNode node = (TestNode) records.get(4).getNodes().iterator().next();
+		assertEquals("Wrong value of the user converter of numbers", 43, node.getField2());
+		assertEquals("Wrong value of the user converter of enums", "NO", node.getField1());
+	}
+
+	@Test
+	public void testDefaultConvertersOfUserServiceAreBypassed() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook()));
+		DefaultConversionService conversionService = spy(new DefaultConversionService());
+		conversionService.addConverter(String.class, Answer.class, source -> "N".equals(source) ? Answer.NO : Answer.YES);
+		CsvFileReader<TestNode, ConvertedCsvLine> csvFileReader = newReader(ConvertedCsvLine.class, version -> new CsvFileReader.CsvImportMapper<TestNode, ConvertedCsvLine>() {
+			@Override
+			public TestNode toNode(ConvertedCsvLine line) {
+				TestNode node = new TestNode();
+				node.setField1(String.valueOf(line.answer));
+				node.setField2(line.number);
+				return node;
+			}
+		}, CsvFileReader.ReadMode.STREAMING);
+		csvFileReader.setConversionService(conversionService);
+		List<ImportLine> records = read(csvFileReader);
+
+		TestNode node = (TestNode) records.get(4).getNodes().iterator().next();
+		assertEquals("Wrong value of the default converter of numbers", 42, node.getField2());
+		assertEquals("Wrong value of the user converter of enums", "NO", node.getField1());
+		verify(conversionService, never()).convert(any(), eq(int.class));
+		verify(conversionService, atLeastOnce()).convert(any(), eq(Answer.class));
+	}
+
+	@Test
+	public void testQuotedFields() throws IOException {
+		mockContent("\uFEFF1;head1;2\n\"s1\";\"te;x\"\"t\";42;N\r\n\"\";;\n\r\ns2;;7\n".getBytes(StandardCharsets.UTF_8));
+
+		List<ImportLine> records = readDelimitedText(';');
+		assertEquals("Wrong line count", 5, records.size());
+		assertEquals("Wrong group", "test.csv", records.get(1).getGroup());
+		TestNode node = (TestNode) records.get(1).getNodes().iterator().next();
+		assertEquals("Wrong text value", "s1", node.getField0());
+		assertEquals("Wrong quoted value", "te;x\"t", node.getField1());
+		assertEquals("Wrong numeric value", 42, node.getField2());
+		assertEquals("Wrong line message for record 2", "Row at index 3 is empty", records.get(2).getMessage());
+		assertEquals("Wrong line message for blank record 3", "Row at index 4 is empty", records.get(3).getMessage());
+		node = (TestNode) records.get(4).getNodes().iterator().next();
+		assertEquals("Wrong value after the blank record", "s2", node.getField0());
+	}
+
+	@Test
+	public void testRecordsSpanningBlocks() throws IOException {
+		int rowCount = 100000;
+		StringBuilder content = new StringBuilder("1,head1,2\n");
+		for (int i = 1; i <= rowCount; i++) {
+			content.append("\"line\nbreak\",text,").append(i).append(",N\n");
+		}
+		mockContent(content.toString().getBytes(StandardCharsets.UTF_8));
+
+		List<ImportLine> records = readDelimitedText(',');
+		assertEquals("Wrong line count", rowCount + 1, records.size());
+		for (int i = 1; i <= rowCount; i++) {
+			ImportLine record = records.get(i);
+			assertEquals("Wrong line index for record " + i, i, record.getIndex());
+			TestNode node = (TestNode) record.getNodes().iterator().next();
+			assertEquals("Wrong quoted value for record " + i, "line\nbreak", node.getField0());
+			assertEquals("Wrong numeric value for record " + i, i, node.getField2());
+		}
+	}
+
+	@Test
+	public void testDiskBackedSharedStrings() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook(), workbook -> {
+			Row row = workbook.getSheet("second").createRow(2);
+			row.createCell(0).setCellValue("s2");
+			row.createCell(1).setCellValue(new XSSFRichTextString("rich text"));
+			row.createCell(2).setCellValue(7);
+		}));
+		List<ImportLine> domRecords = read(CsvFileReader.ReadMode.DOM);
+		CsvFileReader<TestNode, TestCsvLine> csvFileReader = newReader(CsvFileReader.ReadMode.STREAMING);
+		csvFileReader.setSharedStringsCacheSize(1);
+		List<ImportLine> streamingRecords = read(csvFileReader);
+
+		assertEquals("Wrong line count", 6, streamingRecords.size());
+		for (int i = 0; i < domRecords.size(); i++) {
+			assertEquals("Wrong nodes for record " + i, domRecords.get(i).getNodes(), streamingRecords.get(i).getNodes());
+		}
+		TestNode node = (TestNode) streamingRecords.get(5).getNodes().iterator().next();
+		assertEquals("Wrong rich text value", "rich text", node.getField1());
+	}
+
+	@Test
+	public void testHeaderBinding() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook()));
+		CsvFileReader<TestNode, HeaderCsvLine> csvFileReader = newReader(HeaderCsvLine.class, version -> new CsvFileReader.CsvImportMapper<TestNode, HeaderCsvLine>() {
+			@Override
+			public TestNode toNode(HeaderCsvLine line) {
+				TestNode node = new TestNode();
+				node.setField0(line.cell0);
+				node.setField1(line.text);
+				node.setField2(line.number);
+				return node;
+			}
+		}, CsvFileReader.ReadMode.STREAMING);
+		csvFileReader.setHeaderBinding(true);
+		List<ImportLine> records = read(csvFileReader);
+
+		assertEquals("Wrong line count", 5, records.size());
+		TestNode node = (TestNode) records.get(4).getNodes().iterator().next();
+		assertEquals("Wrong positional value", "s1", node.getField0());
+		assertEquals("Wrong value bound by header", "text", node.getField1());
+		assertEquals("Wrong value bound by position when the header is missing", 42, node.getField2());
+	}
+
+	@Test
+	public void testPreview() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook()));
+		Preview preview = newReader(CsvFileReader.ReadMode.DOM).preview(2);
+
+		assertEquals("Wrong version", Integer.valueOf(1), preview.getVersion());
+		assertEquals("Wrong groups", Arrays.asList("first", "second"), preview.getGroups());
+		assertEquals("Wrong row count", 2, preview.getRows().get("first").size());
+		assertEquals("Wrong header row", Arrays.asList("1", "head1", "2"), preview.getRows().get("first").get(0));
+		assertEquals("Wrong first row", Arrays.asList("s1", "text", "42", "N"), preview.getRows().get("second").get(1));
+	}
+
+	@Test
+	public void testProgress() throws IOException {
+		for (Workbook workbook : new Workbook[] { new XSSFWorkbook(), new HSSFWorkbook() }) {
+			mockContent(makeWorkbook(workbook, sheets -> sheets.getSheet("first").createRow(10).createCell(0).setCellValue("")));
+			for (CsvFileReader.ReadMode readMode : new CsvFileReader.ReadMode[] { CsvFileReader.ReadMode.DOM, CsvFileReader.ReadMode.STREAMING }) {
+				List<ImportLine> records = read(readMode);
+				String format = workbook.getClass().getSimpleName() + " in " + readMode;
+				// The count is the height of the sheets, while indexes follow the rows read
+				assertEquals("Wrong line count in " + format, 13, records.get(0).getCount());
+				assertEquals("Wrong progress in " + format, 2 / 13.0, records.get(1).getProgress(), 1e-9);
+				ImportLine secondHeader = records.stream().filter(line -> "second".equals(line.getGroup())).findFirst().get();
+				assertEquals("Wrong index of the second sheet in " + format, 4, secondHeader.getIndex());
+			}
+		}
+	}
+
+	@Test
+	public void testParallelSheetsMatchSequential() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook(), workbook -> {
+			for (int i = 0; i < 6; i++) {
+				Sheet sheet = workbook.createSheet("extra" + i);
+				sheet.createRow(0).createCell(0).setCellValue("1");
+				for (int j = 1; j <= 50; j++) {
+					Row row = sheet.createRow(j);
+					row.createCell(0).setCellValue("e" + j);
+					row.createCell(2).setCellValue(j);
+				}
+			}
+		}));
+		for (CsvFileReader.ReadMode readMode : new CsvFileReader.ReadMode[] { CsvFileReader.ReadMode.DOM, CsvFileReader.ReadMode.STREAMING }) {
+			List<ImportLine> sequentialRecords = readInParallel(readMode, 1, 1);
+			assertEquals("Wrong line count in " + readMode, 3 + 2 + 6 * 51, sequentialRecords.size());
+			assertSameLines(sequentialRecords, readInParallel(readMode, 4, 1));
+		}
+	}
+
+	@Test
+	public void testParallelRowsMatchSequential() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook(), workbook -> {
+			Sheet sheet = workbook.getSheet("second");
+			for (int j = 2; j <= 1000; j++) {
+				Row row = sheet.createRow(j);
+				row.createCell(0).setCellValue("s" + j);
+				row.createCell(2).setCellValue(j);
+			}
+			// The empty row ends the sheet, the following rows being ignored
+			sheet.createRow(700).createCell(0).setCellValue("");
+		}));
+		for (CsvFileReader.ReadMode readMode : new CsvFileReader.ReadMode[] { CsvFileReader.ReadMode.DOM, CsvFileReader.ReadMode.STREAMING }) {
+			List<ImportLine> sequentialRecords = readInParallel(readMode, 1, 1);
+			assertEquals("Wrong line count in " + readMode, 3 + 701, sequentialRecords.size());
+			assertSameLines(sequentialRecords, readInParallel(readMode, 1, 4));
+		}
+	}
+
+	@Test
+	public void testAdmittedWorkbookIsReleased() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook()));
+		CsvFileReader<TestNode, TestCsvLine> csvFileReader = newReader(CsvFileReader.ReadMode.DOM);
+		WorkbookEstimate estimate = csvFileReader.estimateWorkbook();
+		assertEquals("Wrong cell count", 4 * 4 + 2 * 4, estimate.getCellCount());
+		assertEquals("Wrong shared string count", 8, estimate.getSharedStringCount());
+		assertTrue("The entries should be measured uncompressed", estimate.getUncompressedSize() > estimate.getFileSize());
+
+		MemoryBudgetAdmissionPolicy admissionPolicy = new MemoryBudgetAdmissionPolicy(1L << 30, Duration.ZERO);
+		csvFileReader.setAdmissionPolicy(admissionPolicy);
+		ReadFilter filter = csvFileReader.createFilter();
+		assertEquals("Wrong reserved heap", estimate.getDomHeap(), admissionPolicy.getReserved());
+		assertEquals("Wrong line count", 5, csvFileReader.read(filter).count());
+		assertEquals("Wrong reserved heap", 0, admissionPolicy.getReserved());
+	}
+
+	@Test
+	public void testAdmittedWorkbookIsCopiedOnce() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook()));
+		CsvFileReader<TestNode, TestCsvLine> csvFileReader = newReader(CsvFileReader.ReadMode.STREAMING);
+		csvFileReader.setAdmissionPolicy(new MemoryBudgetAdmissionPolicy(1L << 30, Duration.ZERO));
+		ReadFilter filter = csvFileReader.createFilter();
+		assertEquals("Wrong line count", 5, csvFileReader.read(filter).count());
+		// Twice to detect the file type, and once for the copy estimated and then streamed
+		verify(mockFile, times(3)).getInputStream();
+	}
+
+	@Test
+	public void testParsedFileCacheReplaysLines() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook()));
+		ParsedFileCache parsedFileCache = new ParsedFileCache(temporaryFolder.getRoot().toPath(), 1L << 20);
+		for (CsvFileReader.ReadMode readMode : new CsvFileReader.ReadMode[] { CsvFileReader.ReadMode.DOM, CsvFileReader.ReadMode.STREAMING }) {
+			List<ImportLine> records = read(newCachingReader(readMode, null));
+			List<ImportLine> parsedRecords = read(newCachingReader(readMode, parsedFileCache));
+			clearInvocations(mockFile);
+			List<ImportLine> cachedRecords = read(newCachingReader(readMode, parsedFileCache));
+			// Only hashed, not parsed
+			verify(mockFile, times(1)).getInputStream();
+			assertSameLines(records, parsedRecords);
+			assertSameLines(records, cachedRecords);
+		}
+		assertEquals("Wrong cache entry count", 2, temporaryFolder.getRoot().list().length);
+	}
+
+	@Test
+	public void testParsedFileCacheEvictsLeastRecentlyUsed() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook()));
+		read(newCachingReader(CsvFileReader.ReadMode.STREAMING, new ParsedFileCache(temporaryFolder.getRoot().toPath(), 1L << 20)));
+		File[] entries = temporaryFolder.getRoot().listFiles();
+		assertEquals("Wrong cache entry count", 1, entries.length);
+
+		ParsedFileCache parsedFileCache = new ParsedFileCache(temporaryFolder.getRoot().toPath(), sizeOf(entries[0]) * 3 / 2);
+		mockContent(makeWorkbook(new XSSFWorkbook(), workbook -> workbook.getSheet("second").createRow(2).createCell(0).setCellValue("s2")));
+		assertEquals("Wrong line count", 6, read(newCachingReader(CsvFileReader.ReadMode.STREAMING, parsedFileCache)).size());
+		assertEquals("Wrong cache entry count", 1, temporaryFolder.getRoot().list().length);
+		assertFalse("The least recently used entry should be evicted", entries[0].exists());
+
+		// An entry beyond the quota is only used by the current read
+		parsedFileCache = new ParsedFileCache(temporaryFolder.getRoot().toPath(), 0);
+		mockContent(makeWorkbook(new XSSFWorkbook(), workbook -> workbook.getSheet("second").createRow(2).createCell(0).setCellValue("s3")));
+		assertEquals("Wrong line count", 6, read(newCachingReader(CsvFileReader.ReadMode.STREAMING, parsedFileCache)).size());
+		assertEquals("Wrong cache entry count", 0, temporaryFolder.getRoot().list().length);
+	}
+
+	@Test
+	public void testParsedFileCacheEntryEvictedWhileRead() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook()));
+		ParsedFileCache parsedFileCache = new ParsedFileCache(temporaryFolder.getRoot().toPath(), 1L << 20);
+		List<ImportLine> parsedRecords = read(newCachingReader(CsvFileReader.ReadMode.STREAMING, parsedFileCache));
+
+		CsvFileReader<TestNode, TestCsvLine> csvFileReader = newCachingReader(CsvFileReader.ReadMode.STREAMING, parsedFileCache);
+		ReadFilter filter = csvFileReader.createFilter();
+		// As evicted by the import of another file
+		for (File entry : temporaryFolder.getRoot().listFiles()) {
+			assertTrue("The entry should be deleted", FileSystemUtils.deleteRecursively(entry));
+		}
+		assertSameLines(parsedRecords, csvFileReader.read(filter).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testParsedFileCacheOnlyWritesSheetsRead() throws IOException {
+		mockContent(makeWorkbook(new XSSFWorkbook()));
+		ParsedFileCache parsedFileCache = new ParsedFileCache(temporaryFolder.getRoot().toPath(), 1L << 20);
+		CsvFileReader<TestNode, TestCsvLine> csvFileReader = newCachingReader(CsvFileReader.ReadMode.STREAMING, parsedFileCache);
+		ReadFilter filter = csvFileReader.createFilter();
+		filter.getGroups().remove("first");
+		List<ImportLine> records = csvFileReader.read(filter).collect(Collectors.toList());
+		File[] entries = temporaryFolder.getRoot().listFiles();
+		assertEquals("Wrong cache entry count", 1, entries.length);
+		assertEquals("Only the sheet read should be cached", new HashSet<>(Arrays.asList("sheets", "1.sheet")), new HashSet<>(Arrays.asList(entries[0].list())));
+
+		// The first sheet is read from the file and added to the entry
+		List<ImportLine> allRecords = read(newCachingReader(CsvFileReader.ReadMode.STREAMING, parsedFileCache));
+		assertEquals("Wrong nodes of the second sheet", nodesOf(records), nodesOf(allRecords).subList(1, 2));
+		assertEquals("Both sheets should be cached", new HashSet<>(Arrays.asList("sheets", "0.sheet", "1.sheet")), new HashSet<>(Arrays.asList(entries[0].list())));
+	}
+
+	@Test
+	public void testInternedValues() throws IOException {
+		mockContent("1,head1,2\ns1,a,1\ns2,a,2\ns3,b,3\ns4,b,4\n".getBytes(StandardCharsets.UTF_8));
+
+		List<TestNode> nodes = nodesOf(readInterned(1024));
+		assertSame("Equal values of an interned column should be shared", nodes.get(0).getField1(), nodes.get(1).getField1());
+		assertSame("Equal values of an interned column should be shared", nodes.get(2).getField1(), nodes.get(3).getField1());
+		assertNotSame("Values of other columns should not be shared", nodes.get(0).getField0(), nodes.get(1).getField0());
+
+		nodes = nodesOf(readInterned(1));
+		assertSame("Values held by the dictionary should be shared", nodes.get(0).getField1(), nodes.get(1).getField1());
+		assertEquals("Wrong value beyond the dictionary size", "b", nodes.get(3).getField1());
+		assertNotSame("Values beyond the dictionary size should not be shared", nodes.get(2).getField1(), nodes.get(3).getField1());
+	}
+
 	private Cell makeCell(SXSSFSheet sheet, Cell cell, int columnIndex, String text) {
 		when(cell.getCellType()).thenReturn(CellType.STRING);
 		RichTextString richText = mock(RichTextString.class);
@@ -347,4 +839,130 @@ public class TestCsvFileReader  {
 		return row;
 	}
 
+	private void mockContent(byte[] content) throws IOException {
+		when(mockFile.getInputStream()).then(invocation -> new ByteArrayInputStream(content));
+		when(mockFile.getSize()).thenReturn((long) content.length);
+	}
+
+	private CsvFileReader<TestNode, TestCsvLine> newReader(CsvFileReader.ReadMode readMode) {
+		return newReader(TestCsvLine.class, version -> new TestCsvRowMapper(), readMode);
+	}
+
+	private <S extends CsvFileReader.CsvLine<TestNode>> CsvFileReader<TestNode, S> newReader(Class<S> lineType, Function<Integer, CsvFileReader.CsvImportMapper<TestNode, S>> mapper, CsvFileReader.ReadMode readMode) {
+		CsvFileReader<TestNode, S> csvFileReader = new CsvFileReader<TestNode, S>(mockFile, lineType, new LinkedList<>(), new LinkedList<>(), mapper) {
+		};
+		csvFileReader.setReadMode(readMode);
+		return csvFileReader;
+	}
+
+	private CsvFileReader<TestNode, TestCsvLine> newCachingReader(CsvFileReader.ReadMode readMode, ParsedFileCache parsedFileCache) {
+		CsvFileReader<TestNode, TestCsvLine> csvFileReader = newReader(readMode);
+		csvFileReader.setTypedCellValues(true);
+		csvFileReader.setParsedFileCache(parsedFileCache);
+		return csvFileReader;
+	}
+
+	/**
+	 * @return All the lines of the file, read with a filter of all its rows
+	 */
+	private List<ImportLine> read(CsvFileReader<TestNode, ?> csvFileReader) {
+		ReadFilter filter = csvFileReader.createFilter();
+		assertEquals("Wrong version", Integer.valueOf(1), filter.getVersion());
+		List<ImportLine> records = csvFileReader.read(filter).collect(Collectors.toList());
+		assertFalse("No line should remain", csvFileReader.hasNext());
+		return records;
+	}
+
+	private List<ImportLine> read(CsvFileReader.ReadMode readMode) {
+		return read(newReader(readMode));
+	}
+
+	private List<ImportLine> readDelimitedText(char delimiter) {
+		when(mockFile.getOriginalFilename()).thenReturn("test.csv");
+		CsvFileReader<TestNode, TestCsvLine> csvFileReader = newReader(CsvFileReader.ReadMode.DELIMITED_TEXT);
+		csvFileReader.setDelimiter(delimiter);
+		return read(csvFileReader);
+	}
+
+	private List<ImportLine> readInterned(int dictionarySize) {
+		when(mockFile.getOriginalFilename()).thenReturn("test.csv");
+		CsvFileReader<TestNode, InternedCsvLine> csvFileReader = newReader(InternedCsvLine.class, version -> new InternedCsvRowMapper(), CsvFileReader.ReadMode.DELIMITED_TEXT);
+		csvFileReader.setDictionarySize(dictionarySize);
+		return read(csvFileReader);
+	}
+
+	private List<ImportLine> readInParallel(CsvFileReader.ReadMode readMode, int sheetParallelism, int rowParallelism) {
+		CsvFileReader<TestNode, TestCsvLine> csvFileReader = newReader(readMode);
+		csvFileReader.setSheetParallelism(sheetParallelism);
+		csvFileReader.setRowParallelism(rowParallelism);
+		return read(csvFileReader);
+	}
+
+	private void assertStreamingMatchesDom() {
+		List<ImportLine> domRecords = read(CsvFileReader.ReadMode.DOM);
+		List<ImportLine> streamingRecords = read(CsvFileReader.ReadMode.STREAMING);
+
+		assertEquals("Wrong line count", 5, domRecords.size());
+		assertSameLines(domRecords, streamingRecords);
+		TestNode node = (TestNode) streamingRecords.get(4).getNodes().iterator().next();
+		assertEquals("Wrong text value", "s1", node.getField0());
+		assertEquals("Wrong numeric value", 42, node.getField2());
+	}
+
+	private static List<TestNode> nodesOf(List<ImportLine> records) {
+		return records.stream()
+				.filter(record -> record.getNodes() != null && !record.getNodes().isEmpty())
+				.map(record -> (TestNode) record.getNodes().iterator().next())
+				.collect(Collectors.toList());
+	}
+
+	private static void assertSameLines(List<ImportLine> expectedRecords, List<ImportLine> records) {
+		assertEquals("Wrong line count", expectedRecords.size(), records.size());
+		for (int i = 0; i < expectedRecords.size(); i++) {
+			ImportLine expectedRecord = expectedRecords.get(i);
+			ImportLine record = records.get(i);
+			assertEquals("Wrong group for record " + i, expectedRecord.getGroup(), record.getGroup());
+			assertEquals("Wrong line index for record " + i, expectedRecord.getIndex(), record.getIndex());
+			assertEquals("Wrong line index in group for record " + i, expectedRecord.getIndexInGroup(), record.getIndexInGroup());
+			assertEquals("Wrong line count for record " + i, expectedRecord.getCount(), record.getCount());
+			assertEquals("Wrong line message for record " + i, expectedRecord.getMessage(), record.getMessage());
+			assertEquals("Wrong severity for record " + i, expectedRecord.getSeverity(), record.getSeverity());
+			assertEquals("Wrong nodes for record " + i, expectedRecord.getNodes(), record.getNodes());
+		}
+	}
+
+	private static byte[] makeWorkbook(Workbook workbook) throws IOException {
+		return makeWorkbook(workbook, w -> {});
+	}
+
+	/**
+	 * @return The workbook of the sheets "first" and "second", each with a header row and a row of values, the first
+	 * one ending with an empty row
+	 */
+	private static byte[] makeWorkbook(Workbook workbook, Consumer<Workbook> customizer) throws IOException {
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			for (String sheetName : new String[] { "first", "second" }) {
+				Sheet sheet = workbook.createSheet(sheetName);
+				Row header = sheet.createRow(0);
+				header.createCell(0).setCellValue("1");
+				header.createCell(1).setCellValue("head1");
+				header.createCell(2).setCellValue("2");
+				Row row = sheet.createRow(1);
+				row.createCell(0).setCellValue(sheetName.charAt(0) + "1");
+				row.createCell(1).setCellValue("text");
+				row.createCell(2).setCellValue(42);
+				row.createCell(3).setCellValue("N");
+			}
+			workbook.getSheetAt(0).createRow(3).createCell(0).setCellValue("");
+			customizer.accept(workbook);
+			workbook.write(out);
+			workbook.close();
+			return out.toByteArray();
+		}
+	}
+
+	private static long sizeOf(File entry) {
+		return Arrays.stream(entry.listFiles()).mapToLong(File::length).sum();
+	}
+
 }
@@ -1,6 +1,7 @@
 package xyz.deverse.importer.importer.csv;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -8,6 +9,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -21,8 +23,10 @@ import org.springframework.web.multipart.MultipartFile;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import xyz.deverse.importer.ImportLine;
+import xyz.deverse.importer.ImportMapper;
 import xyz.deverse.importer.ImportStrategy;
 import xyz.deverse.importer.Importer;
+import xyz.deverse.importer.ImporterProcessStatus;
 import xyz.deverse.importer.ReadFilter;
 import xyz.deverse.importer.csv.CsvFileReader;
 import xyz.deverse.importer.csv.CsvImportStrategyBuilder;
@@ -107,6 +111,23 @@ public class TestCsvImportStrategy {
 		verify(importer, times(1)).onParseLine(null);
 	}
 
+	@Test
+	public void testEstimatedTimeLeft() throws ClassNotFoundException {
+		csvImport = instanceStrategy();
+		csvImport.parse();
+
+		Long startTimestamp = csvImport.getStartTimestamp();
+		assertNotNull("The start of the import should be recorded", startTimestamp);
+		ImportLine line = ImportMapper.MappedLine.builder().index(0).count(4).build();
+		ImporterProcessStatus status = ImporterProcessStatus.builder()
+				.startTimestamp(startTimestamp)
+				.timestamp(startTimestamp + 1000)
+				.results(Arrays.asList(line))
+				.build();
+		assertEquals("Wrong progress", 0.25, status.getProgress(), 1e-9);
+		assertEquals("Wrong estimated time left", Long.valueOf(3000), status.getEstimatedTimeLeft());
+	}
+
 	private CsvImportStrategyBuilder.CsvImportStrategy instanceStrategy() throws ClassNotFoundException {
 		CsvImportStrategyBuilder.CsvImportStrategy strategy = new CsvImportStrategyBuilder<GenericTestInstance, GenericTestCsvLine>() {
 		}.new CsvImportStrategy(GenericTestInstance.class, GenericTestCsvLine.class, version -> (row -> new GenericTestInstance()),
@@ -0,0 +1,65 @@
+package xyz.deverse.importer.importer.csv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+import xyz.deverse.importer.csv.AdmissionPolicy;
+import xyz.deverse.importer.csv.CsvFileReader;
+import xyz.deverse.importer.csv.MemoryBudgetAdmissionPolicy;
+import xyz.deverse.importer.csv.WorkbookEstimate;
+
+public class TestMemoryBudgetAdmissionPolicy {
+
+	MemoryBudgetAdmissionPolicy admissionPolicy = new MemoryBudgetAdmissionPolicy(100, Duration.ofMillis(50));
+
+	@Test
+	public void testRouteToStreaming() {
+		AdmissionPolicy.Admission first = admissionPolicy.admit(estimate(60, 30), CsvFileReader.ReadMode.DOM);
+		assertEquals("Wrong read mode", CsvFileReader.ReadMode.DOM, first.getReadMode());
+		AdmissionPolicy.Admission second = admissionPolicy.admit(estimate(60, 30), CsvFileReader.ReadMode.DOM);
+		assertEquals("Wrong read mode", CsvFileReader.ReadMode.STREAMING, second.getReadMode());
+		assertEquals("Wrong reserved heap", 90, admissionPolicy.getReserved());
+
+		first.release();
+		first.release();
+		assertEquals("Wrong reserved heap", 30, admissionPolicy.getReserved());
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void testRejectBeyondBudget() {
+		admissionPolicy.admit(estimate(200, 120), CsvFileReader.ReadMode.DOM);
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void testRejectAfterWait() {
+		admissionPolicy.admit(estimate(80, -1), CsvFileReader.ReadMode.DOM);
+		admissionPolicy.admit(estimate(80, -1), CsvFileReader.ReadMode.DOM);
+	}
+
+	@Test
+	public void testWaitForRelease() throws InterruptedException {
+		admissionPolicy = new MemoryBudgetAdmissionPolicy(100, Duration.ofSeconds(10));
+		AdmissionPolicy.Admission first = admissionPolicy.admit(estimate(80, -1), CsvFileReader.ReadMode.DOM);
+		Thread releaser = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			first.release();
+		});
+		releaser.start();
+		AdmissionPolicy.Admission second = admissionPolicy.admit(estimate(80, -1), CsvFileReader.ReadMode.DOM);
+		assertEquals("Wrong read mode", CsvFileReader.ReadMode.DOM, second.getReadMode());
+		assertEquals("Wrong reserved heap", 80, admissionPolicy.getReserved());
+		releaser.join();
+	}
+
+	private WorkbookEstimate estimate(long domHeap, long streamingHeap) {
+		return WorkbookEstimate.builder().filename("test").domHeap(domHeap).streamingHeap(streamingHeap).build();
+	}
+}
@@ -0,0 +1,215 @@
+package xyz.deverse.importer.importer.fixed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.event.Level;
+import org.springframework.web.multipart.MultipartFile;
+
+import lombok.Data;
+import xyz.deverse.importer.BinaryOffset;
+import xyz.deverse.importer.ImportLine;
+import xyz.deverse.importer.Preview;
+import xyz.deverse.importer.fixed.BinaryFileReader;
+import xyz.deverse.importer.fixed.BinaryImportStrategyBuilder;
+import xyz.deverse.importer.fixed.FixedFileReader;
+
+public class TestBinaryFileReader {
+
+    private static final Charset EBCDIC = Charset.forName("IBM037");
+
+    private static final int RECORD_LENGTH = 20;
+
+    @Data
+    public static class TestBinaryLine extends FixedFileReader.FixedLine<TestBinaryLine> {
+
+        @BinaryOffset(start = 0, end = 8, trim = true)
+        String name;
+
+        @BinaryOffset(start = 8, end = 12, encoding = BinaryOffset.Encoding.PACKED_DECIMAL, scale = 2)
+        BigDecimal amount;
+
+        @BinaryOffset(start = 12, end = 15, encoding = BinaryOffset.Encoding.PACKED_DECIMAL)
+        int quantity;
+
+        @BinaryOffset(start = 15, end = 19, encoding = BinaryOffset.Encoding.BINARY)
+        long id;
+    }
+
+    @Data
+    public static class TestTotalLine extends FixedFileReader.FixedLine<TestTotalLine> {
+
+        /**
+         * As declared PIC S9(18) COMP-3
+         */
+        @BinaryOffset(start = 0, end = 10, encoding = BinaryOffset.Encoding.PACKED_DECIMAL)
+        long total;
+    }
+
+    public static class TestBinaryRowMapper<S extends FixedFileReader.FixedLine<S>> implements BinaryFileReader.BinaryImportMapper<S, S> {
+
+        @Override
+        public int skipLines() {
+            return 0;
+        }
+
+        @Override
+        public S toNode(S line) {
+            return line;
+        }
+    }
+
+    MultipartFile mockFile;
+
+    @Before
+    public void setup() {
+        mockFile = mock(MultipartFile.class);
+        when(mockFile.getOriginalFilename()).thenReturn("test.bin");
+    }
+
+    @Test
+    public void testPackedDecimalAndEbcdicFields() throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(record("ALPHA", packed(1234567, 4), packed(-42, 3), 70000));
+        content.write(record("BETA", packed(-5, 4), packed(0, 3), -1));
+        byte[] invalidRecord = record("GAMMA", packed(1, 4), packed(1, 3), 1);
+        // A digit beyond 9
+        invalidRecord[8] = (byte) 0xA0;
+        content.write(invalidRecord);
+        content.write(record("DELTA", packed(9999999, 4), packed(99999, 3), Integer.MAX_VALUE));
+        mockContent(content.toByteArray());
+
+        List<ImportLine> records = read(TestBinaryLine.class, RECORD_LENGTH);
+        assertEquals("Wrong line count", 4, records.size());
+        assertEquals("Wrong line count for record 0", 4, records.get(0).getCount());
+        assertLine(records.get(0), "ALPHA", new BigDecimal("12345.67"), -42, 70000);
+        assertLine(records.get(1), "BETA", new BigDecimal("-0.05"), 0, -1);
+        assertEquals("Wrong severity for the invalid record", Level.ERROR, records.get(2).getSeverity());
+        assertEquals("Wrong line index for the invalid record", 2, records.get(2).getIndex());
+        assertLine(records.get(3), "DELTA", new BigDecimal("99999.99"), 99999, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testLongPackedDecimal() throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(packed(5, 10));
+        content.write(packed(Long.MIN_VALUE + 1, 10));
+        content.write(packed(Long.MAX_VALUE, 10));
+        content.write(packed(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE), 10));
+        mockContent(content.toByteArray());
+
+        List<ImportLine> records = read(TestTotalLine.class, 10);
+        assertEquals("Wrong line count", 4, records.size());
+        assertEquals("Wrong small value", 5, ((TestTotalLine) records.get(0).getNodes().iterator().next()).getTotal());
+        assertEquals("Wrong negative value", Long.MIN_VALUE + 1, ((TestTotalLine) records.get(1).getNodes().iterator().next()).getTotal());
+        assertEquals("Wrong largest value", Long.MAX_VALUE, ((TestTotalLine) records.get(2).getNodes().iterator().next()).getTotal());
+        assertEquals("Wrong severity for the value beyond a long", Level.ERROR, records.get(3).getSeverity());
+    }
+
+    @Test
+    public void testTruncatedRecord() throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(record("ALPHA", packed(1, 4), packed(1, 3), 1));
+        content.write(record("BETA", packed(2, 4), packed(2, 3), 2));
+        content.write(new byte[5]);
+        mockContent(content.toByteArray());
+
+        List<ImportLine> records = read(TestBinaryLine.class, RECORD_LENGTH);
+        assertEquals("Wrong line count", 3, records.size());
+        assertEquals("Wrong line count for record 0", 3, records.get(0).getCount());
+        assertLine(records.get(1), "BETA", new BigDecimal("0.02"), 2, 2);
+        assertEquals("Wrong severity for the truncated record", Level.ERROR, records.get(2).getSeverity());
+        assertEquals("Wrong line index for the truncated record", 2, records.get(2).getIndex());
+        assertTrue("Wrong message for the truncated record", records.get(2).getMessage().contains("truncated record of 5 bytes"));
+    }
+
+    @Test
+    public void testPreview() throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(record("ALPHA", packed(1234567, 4), packed(-42, 3), 70000));
+        byte[] invalidRecord = record("GAMMA", packed(1, 4), packed(1, 3), 1);
+        invalidRecord[8] = (byte) 0xA0;
+        content.write(invalidRecord);
+        content.write(record("DELTA", packed(9999999, 4), packed(99999, 3), Integer.MAX_VALUE));
+        mockContent(content.toByteArray());
+
+        BinaryFileReader<TestBinaryLine, TestBinaryLine> binaryFileReader = new BinaryFileReader<TestBinaryLine, TestBinaryLine>(mockFile, TestBinaryLine.class, new LinkedList<>(), new LinkedList<>(), new TestBinaryRowMapper<>(), RECORD_LENGTH) {
+        };
+        Preview preview = binaryFileReader.preview(2);
+        assertEquals("Wrong groups", Collections.singletonList("test.bin"), preview.getGroups());
+        List<List<String>> rows = preview.getRows().get("test.bin");
+        assertEquals("Wrong row count", 2, rows.size());
+        assertEquals("Wrong first row", Arrays.asList("ALPHA", "12345.67", "-42", "70000"), rows.get(0));
+        assertEquals("Wrong row with an invalid field", Arrays.asList("GAMMA", null, "1", "1"), rows.get(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRecordLengthIsRequired() {
+        new BinaryImportStrategyBuilder<TestBinaryLine, TestBinaryLine>() {
+        }.withRowMapper(new TestBinaryRowMapper<>()).build();
+    }
+
+    private void assertLine(ImportLine record, String name, BigDecimal amount, int quantity, long id) {
+        TestBinaryLine line = (TestBinaryLine) record.getNodes().iterator().next();
+        assertEquals("Wrong text value", name, line.getName());
+        assertEquals("Wrong packed decimal value", amount, line.getAmount());
+        assertEquals("Wrong packed integer value", quantity, line.getQuantity());
+        assertEquals("Wrong binary value", id, line.getId());
+    }
+
+    private void mockContent(byte[] content) throws IOException {
+        when(mockFile.getInputStream()).then(invocation -> new ByteArrayInputStream(content));
+        when(mockFile.getSize()).thenReturn((long) content.length);
+    }
+
+    private <S extends FixedFileReader.FixedLine<S>> List<ImportLine> read(Class<S> lineType, int recordLength) {
+        BinaryFileReader<S, S> binaryFileReader = new BinaryFileReader<S, S>(mockFile, lineType, new LinkedList<>(), new LinkedList<>(), new TestBinaryRowMapper<>(), recordLength) {
+        };
+        List<ImportLine> records = binaryFileReader.read(binaryFileReader.createFilter()).collect(Collectors.toList());
+        assertFalse("No record should remain", binaryFileReader.hasNext());
+        return records;
+    }
+
+    private byte[] record(String name, byte[] amount, byte[] quantity, int id) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_LENGTH);
+        record.put(String.format("%-8s", name).getBytes(EBCDIC));
+        record.put(amount);
+        record.put(quantity);
+        record.putInt(id);
+        return record.array();
+    }
+
+    /**
+     * @return The value as a COMP-3 packed decimal of the given length
+     */
+    private byte[] packed(long value, int length) {
+        return packed(BigInteger.valueOf(value), length);
+    }
+
+    private byte[] packed(BigInteger value, int length) {
+        String digits = String.format("%0" + (2 * length - 1) + "d", value.abs()) + (value.signum() < 0 ? "D" : "C");
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) Integer.parseInt(digits.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
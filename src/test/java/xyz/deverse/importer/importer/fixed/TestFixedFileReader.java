@@ -0,0 +1,205 @@
+package xyz.deverse.importer.importer.fixed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.multipart.MultipartFile;
+
+import lombok.Data;
+import xyz.deverse.importer.FixedOffset;
+import xyz.deverse.importer.ImportLine;
+import xyz.deverse.importer.fixed.FixedFileReader;
+
+public class TestFixedFileReader {
+
+    public static class TestFixedLine extends FixedFileReader.FixedLine<TestNode> {
+
+        @FixedOffset(start = 0, end = 4)
+        String code;
+
+        @FixedOffset(start = 4, end = 10)
+        String label;
+    }
+
+    public static class TestFixedRowMapper implements FixedFileReader.StringImportMapper<TestNode, TestFixedLine> {
+
+        @Override
+        public int skipLines() {
+            return 1;
+        }
+
+        @Override
+        public TestNode toNode(TestFixedLine line) {
+            TestNode node = new TestNode();
+            node.code = line.code;
+            node.label = line.label;
+            return node;
+        }
+    }
+
+    @Data
+    public static class TestTypedFixedLine extends FixedFileReader.FixedLine<TestTypedFixedLine> {
+
+        @FixedOffset(start = 0, end = 4)
+        int code;
+
+        @FixedOffset(start = 4, end = 16)
+        Long amount;
+
+        @FixedOffset(start = 16, end = 24)
+        BigDecimal rate;
+
+        @FixedOffset(start = 24, end = 32, trim = true)
+        String label;
+
+        @FixedOffset(start = 24, end = 32)
+        CharSequence rawLabel;
+    }
+
+    @Data
+    public static class TestNode {
+
+        String code;
+
+        String label;
+    }
+
+    MultipartFile mockFile;
+
+    @Before
+    public void setup() throws IOException {
+        mockFile = mock(MultipartFile.class);
+        when(mockFile.getOriginalFilename()).thenReturn("test.txt");
+    }
+
+    @Test
+    public void testLineTerminatorsAndCharset() throws IOException {
+        mockContent("HEAD\r\n0001caf\u00e9  \r0002th\u00e9   \n0003\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        List<ImportLine> records = read(StandardCharsets.ISO_8859_1);
+        assertEquals("Wrong line count", 4, records.size());
+        assertEquals("Wrong line count for record 1", 4, records.get(1).getCount());
+        assertEquals("Wrong node for record 1", node("0001", "caf\u00e9  "), records.get(1).getNodes().iterator().next());
+        assertEquals("Wrong node for record 2", node("0002", "th\u00e9   "), records.get(2).getNodes().iterator().next());
+        assertEquals("Wrong node for record 3", node("0003", ""), records.get(3).getNodes().iterator().next());
+    }
+
+    @Test
+    public void testLinesSpanningBlocks() throws IOException {
+        int rowCount = 200000;
+        StringBuilder content = new StringBuilder("HEAD\n");
+        for (int i = 1; i <= rowCount; i++) {
+            content.append(String.format("%04d", i % 10000)).append("\u00e0bcdef\r\n");
+        }
+        mockContent(content.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<ImportLine> records = read(StandardCharsets.UTF_8);
+        assertEquals("Wrong line count", rowCount + 1, records.size());
+        for (int i = 1; i <= rowCount; i++) {
+            ImportLine record = records.get(i);
+            assertEquals("Wrong node for record " + i, node(String.format("%04d", i % 10000), "\u00e0bcdef"), record.getNodes().iterator().next());
+        }
+    }
+
+    @Test
+    public void testParallelLinesMatchSequential() throws IOException {
+        int rowCount = 20000;
+        StringBuilder content = new StringBuilder("HEAD\n");
+        for (int i = 1; i <= rowCount; i++) {
+            content.append(String.format("%04d", i % 10000)).append("label\n");
+        }
+        mockContent(content.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<ImportLine> sequentialRecords = read(StandardCharsets.UTF_8, 1);
+        List<ImportLine> records = read(StandardCharsets.UTF_8, 4);
+        assertEquals("Wrong line count", sequentialRecords.size(), records.size());
+        for (int i = 0; i < records.size(); i++) {
+            ImportLine sequentialRecord = sequentialRecords.get(i);
+            ImportLine record = records.get(i);
+            assertEquals("Wrong line index for record " + i, sequentialRecord.getIndex(), record.getIndex());
+            assertEquals("Wrong line count for record " + i, sequentialRecord.getCount(), record.getCount());
+            assertEquals("Wrong line message for record " + i, sequentialRecord.getMessage(), record.getMessage());
+            assertEquals("Wrong nodes for record " + i, sequentialRecord.getNodes(), record.getNodes());
+        }
+    }
+
+    @Test
+    public void testTypedFields() throws IOException {
+        mockContent(("HEAD\n"
+                + "0042" + "-12345678901" + "  3.1400" + " label  " + "\n"
+                + "  07" + "            " + "     -12" + "        " + "\n").getBytes(StandardCharsets.US_ASCII));
+
+        List<TestTypedFixedLine> lines = new ArrayList<>();
+        FixedFileReader.StringImportMapper<TestTypedFixedLine, TestTypedFixedLine> mapper = new FixedFileReader.StringImportMapper<TestTypedFixedLine, TestTypedFixedLine>() {
+
+            @Override
+            public int skipLines() {
+                return 1;
+            }
+
+            @Override
+            public TestTypedFixedLine toNode(TestTypedFixedLine line) {
+                lines.add(line);
+                return line;
+            }
+        };
+        FixedFileReader<TestTypedFixedLine, TestTypedFixedLine> fixedFileReader = new FixedFileReader<TestTypedFixedLine, TestTypedFixedLine>(mockFile, TestTypedFixedLine.class, new LinkedList<>(), new LinkedList<>(), mapper) {
+        };
+        assertEquals("Wrong line count", 3, fixedFileReader.read(fixedFileReader.createFilter()).count());
+        assertEquals("Wrong int value", 42, lines.get(0).getCode());
+        assertEquals("Wrong long value", Long.valueOf(-12345678901L), lines.get(0).getAmount());
+        assertEquals("Wrong decimal value", new BigDecimal("3.1400"), lines.get(0).getRate());
+        assertEquals("Wrong trimmed value", "label", lines.get(0).getLabel());
+        assertEquals("Wrong raw value", " label  ", lines.get(0).getRawLabel());
+        assertEquals("Wrong int value", 7, lines.get(1).getCode());
+        assertNull("Blank numbers should be null", lines.get(1).getAmount());
+        assertEquals("Wrong decimal value", new BigDecimal("-12"), lines.get(1).getRate());
+        assertEquals("Wrong trimmed value", "", lines.get(1).getLabel());
+    }
+
+    private void mockContent(byte[] content) throws IOException {
+        when(mockFile.getInputStream()).then(invocation -> new ByteArrayInputStream(content));
+        when(mockFile.getSize()).thenReturn((long) content.length);
+    }
+
+    private List<ImportLine> read(Charset charset) {
+        return read(charset, 1);
+    }
+
+    private List<ImportLine> read(Charset charset, int parallelism) {
+        List<Boolean> remainingLines = new ArrayList<>();
+        LinkedList<Consumer<ImportLine>> lineProcessors = new LinkedList<>();
+        FixedFileReader<TestNode, TestFixedLine> fixedFileReader = new FixedFileReader<TestNode, TestFixedLine>(mockFile, TestFixedLine.class, lineProcessors, new LinkedList<>(), new TestFixedRowMapper()) {
+        };
+        lineProcessors.add(line -> remainingLines.add(fixedFileReader.hasNext()));
+        fixedFileReader.setCharset(charset);
+        fixedFileReader.setParallelism(parallelism);
+        List<ImportLine> records = fixedFileReader.read(fixedFileReader.createFilter()).collect(Collectors.toList());
+        assertFalse("No line should remain", fixedFileReader.hasNext());
+        assertEquals("Lines should remain until the last one", remainingLines.size() - 1, remainingLines.indexOf(false));
+        return records;
+    }
+
+    private TestNode node(String code, String label) {
+        TestNode node = new TestNode();
+        node.code = code;
+        node.label = label;
+        return node;
+    }
+}